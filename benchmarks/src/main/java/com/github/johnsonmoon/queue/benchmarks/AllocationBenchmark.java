@@ -0,0 +1,58 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.SimpleTask;
+import com.github.johnsonmoon.queue.TaskFuture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garbage per task of submit, execute and wait, with and without recycled task futures and sequential task ids.
+ * <pre>
+ *  Run with the gc profiler and compare gc.alloc.rate.norm (bytes per task):
+ *  java -jar target/benchmarks.jar AllocationBenchmark -prof gc
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 20:20.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationBenchmark {
+    private static final SimpleTask<Integer> TASK = () -> 1;
+
+    @Param({ExecutorMode.BLOCKING, ExecutorMode.WORK_STEALING})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean recycled;
+
+    private QueueTaskExecutor<Integer> executor;
+
+    @Setup
+    public void setup() {
+        executor = new QueueTaskExecutor<Integer>()
+                .taskConcurrenceCount(4)
+                .taskMaxCount(1024)
+                .workStealing(ExecutorMode.WORK_STEALING.equals(mode))
+                .sequentialTaskIds(recycled)
+                .taskFuturePoolSize(recycled ? 64 : 0)
+                .start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Benchmark
+    public Integer submitAndWait() {
+        TaskFuture<Integer> taskFuture = executor.submit(TASK);
+        Integer result = taskFuture.waitFor();
+        executor.recycle(taskFuture);
+        return result;
+    }
+}
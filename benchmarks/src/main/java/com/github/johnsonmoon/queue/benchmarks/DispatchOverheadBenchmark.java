@@ -0,0 +1,50 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.SimpleTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per no-op task of the whole submit, dispatch and complete path, measured over bursts of tasks.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 19:35.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchOverheadBenchmark {
+    private static final int BURST = 1_000;
+
+    @Param({ExecutorMode.BLOCKING, ExecutorMode.RING_BUFFER, ExecutorMode.PRIORITY, ExecutorMode.WORK_STEALING, ExecutorMode.VIRTUAL_THREADS})
+    public String mode;
+
+    private QueueTaskExecutor<Integer> executor;
+    private List<SimpleTask<Integer>> tasks;
+
+    @Setup
+    public void setup() {
+        executor = ExecutorMode.start(mode, 4, BURST);
+        tasks = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            tasks.add(() -> 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public List<Integer> burst() {
+        return executor.submitAll(tasks).waitForAll();
+    }
+}
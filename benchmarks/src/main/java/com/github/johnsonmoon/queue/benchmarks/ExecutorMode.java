@@ -0,0 +1,54 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.WaitStrategy;
+
+/**
+ * Executor modes compared by the benchmarks, selected by the {@code mode} parameter.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 19:20.
+ */
+public final class ExecutorMode {
+    public static final String BLOCKING = "blocking";
+    public static final String RING_BUFFER = "ringBuffer";
+    public static final String PRIORITY = "priority";
+    public static final String WORK_STEALING = "workStealing";
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+
+    private ExecutorMode() {
+    }
+
+    /**
+     * Create and start an executor of the mode.
+     *
+     * @param mode             mode name
+     * @param concurrenceCount concurrence count
+     * @param taskMaxCount     max count of waiting tasks
+     * @param <T>              type of task result
+     * @return started executor
+     */
+    public static <T> QueueTaskExecutor<T> start(String mode, int concurrenceCount, int taskMaxCount) {
+        QueueTaskExecutor<T> executor = new QueueTaskExecutor<T>()
+                .taskConcurrenceCount(concurrenceCount)
+                .taskMaxCount(taskMaxCount);
+        switch (mode) {
+            case BLOCKING:
+                break;
+            case RING_BUFFER:
+                executor.waitStrategy(WaitStrategy.PARK);
+                break;
+            case PRIORITY:
+                executor.priorityLevels(3);
+                break;
+            case WORK_STEALING:
+                executor.workStealing(true);
+                break;
+            case VIRTUAL_THREADS:
+                executor.virtualThreads(true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown executor mode: " + mode);
+        }
+        return executor.start();
+    }
+}
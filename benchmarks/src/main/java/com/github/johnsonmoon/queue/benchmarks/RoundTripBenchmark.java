@@ -0,0 +1,39 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of submitting one task and waiting for its result, with nothing else queued.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 19:25.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+    @Param({ExecutorMode.BLOCKING, ExecutorMode.RING_BUFFER, ExecutorMode.PRIORITY, ExecutorMode.WORK_STEALING, ExecutorMode.VIRTUAL_THREADS})
+    public String mode;
+
+    private QueueTaskExecutor<Integer> executor;
+
+    @Setup
+    public void setup() {
+        executor = ExecutorMode.start(mode, 4, 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Benchmark
+    public Integer roundTrip() {
+        return executor.submit(() -> 1).waitFor();
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.TaskFuture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained submits per second of no-op tasks by 1, 4 and 16 producer threads.
+ * <pre>
+ *  Producers block when the queue is full, so the score is bounded by how fast tasks are dispatched and completed.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 19:30.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmitThroughputBenchmark {
+    @Param({ExecutorMode.BLOCKING, ExecutorMode.RING_BUFFER, ExecutorMode.PRIORITY, ExecutorMode.WORK_STEALING, ExecutorMode.VIRTUAL_THREADS})
+    public String mode;
+
+    private QueueTaskExecutor<Integer> executor;
+
+    @Setup
+    public void setup() {
+        executor = ExecutorMode.start(mode, 4, 8192);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TaskFuture<Integer> producers1() {
+        return executor.submit(() -> 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TaskFuture<Integer> producers4() {
+        return executor.submit(() -> 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public TaskFuture<Integer> producers16() {
+        return executor.submit(() -> 1);
+    }
+}
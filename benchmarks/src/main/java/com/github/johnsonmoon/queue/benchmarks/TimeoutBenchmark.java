@@ -0,0 +1,67 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.TaskFuture;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tasks under an execution timeout.
+ * <pre>
+ *  inTime: no-op tasks with a timeout each, measures scheduling and cancelling timeouts per task.
+ *  timingOut: tasks sleeping past a 1 ms timeout, measures how late timeouts fire and free the slot.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 19:40.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeoutBenchmark {
+    private static final int BURST = 1_000;
+
+    @Param({ExecutorMode.BLOCKING, ExecutorMode.RING_BUFFER, ExecutorMode.PRIORITY, ExecutorMode.WORK_STEALING, ExecutorMode.VIRTUAL_THREADS})
+    public String mode;
+
+    private QueueTaskExecutor<Integer> executor;
+
+    @Setup
+    public void setup() {
+        executor = ExecutorMode.start(mode, 4, BURST);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(BURST)
+    public void inTime(Blackhole blackhole) {
+        List<TaskFuture<Integer>> taskFutures = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            taskFutures.add(executor.submit(() -> 1, 1_000L));
+        }
+        for (TaskFuture<Integer> taskFuture : taskFutures) {
+            blackhole.consume(taskFuture.waitFor());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Integer timingOut() {
+        return executor.submit(() -> {
+            // returns early when interrupted by the timeout
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            return 1;
+        }, 1L).waitFor();
+    }
+}
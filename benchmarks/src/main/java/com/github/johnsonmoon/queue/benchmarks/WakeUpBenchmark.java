@@ -0,0 +1,96 @@
+package com.github.johnsonmoon.queue.benchmarks;
+
+import com.github.johnsonmoon.queue.QueueTaskExecutor;
+import com.github.johnsonmoon.queue.TaskFuture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency from an executing task returning to the thread blocked in {@link TaskFuture#waitFor()} running.
+ * <pre>
+ *  Before every invocation, an untimed setup step submits a task held parked while executing and gives the waiter thread time to park,
+ *  so unparking the task, the task returning, completing its task future and waking the waiter are measured, not dispatching.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 19:45.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WakeUpBenchmark {
+    private final AtomicReference<TaskFuture<Integer>> next = new AtomicReference<>();
+    private volatile TaskFuture<Integer> woken;
+    private volatile boolean running;
+    private volatile Thread runner;
+    private volatile boolean released;
+    private QueueTaskExecutor<Integer> executor;
+    private Thread waiter;
+    private TaskFuture<Integer> taskFuture;
+
+    @Setup
+    public void setup() {
+        executor = new QueueTaskExecutor<Integer>()
+                .taskConcurrenceCount(1)
+                .start();
+        running = true;
+        waiter = new Thread(() -> {
+            while (running) {
+                TaskFuture<Integer> taskFuture = next.getAndSet(null);
+                if (taskFuture == null) {
+                    Thread.yield();
+                    continue;
+                }
+                taskFuture.waitFor();
+                woken = taskFuture;
+            }
+        }, "wake-up-waiter");
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    @Setup(Level.Invocation)
+    public void handOff() {
+        runner = null;
+        released = false;
+        taskFuture = executor.submit(() -> {
+            runner = Thread.currentThread();
+            while (!released) {
+                LockSupport.park(this);
+            }
+            return 1;
+        });
+        next.set(taskFuture);
+        // give the waiter time to park
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(50);
+        while (runner == null || runner.getState() != Thread.State.WAITING || next.get() != null
+                || waiter.getState() != Thread.State.WAITING || System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        released = true;
+        if (runner != null) {
+            LockSupport.unpark(runner);
+        }
+        waiter.join();
+        executor.stop();
+    }
+
+    @Benchmark
+    public TaskFuture<Integer> wakeUp() {
+        released = true;
+        LockSupport.unpark(runner);
+        while (woken != taskFuture) {
+            // spin, the waiter running is what is measured
+        }
+        return woken;
+    }
+}
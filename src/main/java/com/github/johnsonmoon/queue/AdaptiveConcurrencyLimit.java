@@ -0,0 +1,128 @@
+package com.github.johnsonmoon.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrency limit tuned from observed task latency, see {@link QueueTaskExecutor#adaptiveConcurrence(Boolean)}.
+ * <pre>
+ *  Gradient algorithm: a short and a long moving average of the execution time are kept,
+ *  their ratio (the gradient, within 0.5 and 1) scales the limit down when tasks get slower than usual,
+ *  and a queue allowance of sqrt(limit) lets it probe upwards while latency is steady.
+ *  The limit only grows when the sampled task waited in the queue longer than one execution,
+ *  so an idle executor does not inflate it. The limit is smoothed and kept within min and max.
+ *  Samples are taken with tryLock, a sample arriving while another is applied is dropped.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 17:50.
+ */
+class AdaptiveConcurrencyLimit {
+    private static Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final int WARMUP_SAMPLES = 10;
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double LONG_ALPHA = 0.01;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final IntConsumer resize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double estimatedLimit;
+    private double shortLatency = 0D;
+    private double longLatency = 0D;
+    private long sampleCount = 0L;
+    private volatile int limit;
+
+    /**
+     * @param initialLimit initial limit, clamped within min and max
+     * @param minLimit     min limit
+     * @param maxLimit     max limit
+     * @param resize       applies a new limit
+     */
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, IntConsumer resize) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(String.format("Invalid concurrence range: %s - %s", minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.resize = resize;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.estimatedLimit = limit;
+    }
+
+    /**
+     * Get current limit.
+     *
+     * @return current limit
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Reset the limit to a count set by the user and apply it, waiting for a sample being applied.
+     * <pre>
+     *  Samples compute and apply the limit under the same lock, so one taken before the reset could not override it.
+     * </pre>
+     *
+     * @param newLimit new limit, clamped within min and max
+     */
+    void reset(int newLimit) {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, Math.min(newLimit, maxLimit));
+            estimatedLimit = limit;
+            resize.accept(limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Feed the latency of a task execution.
+     *
+     * @param executionNanos execution time of the task, unit: ns
+     * @param queueWaitNanos time the task waited in the queue before executing, unit: ns
+     */
+    void onSample(long executionNanos, long queueWaitNanos) {
+        if (executionNanos <= 0L || !lock.tryLock()) {
+            return;
+        }
+        try {
+            sampleCount++;
+            if (sampleCount <= WARMUP_SAMPLES) {
+                // plain average while warming up, so the first sample does not dominate
+                shortLatency += (executionNanos - shortLatency) / sampleCount;
+                longLatency = shortLatency;
+                return;
+            }
+            shortLatency += (executionNanos - shortLatency) * SHORT_ALPHA;
+            longLatency += (executionNanos - longLatency) * LONG_ALPHA;
+            if (longLatency / shortLatency > 2D) {
+                // latency dropped a lot, let the baseline follow it faster
+                longLatency *= 0.95D;
+            }
+
+            double gradient = Math.max(0.5D, Math.min(1D, TOLERANCE * longLatency / shortLatency));
+            double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            if (newLimit > estimatedLimit && queueWaitNanos <= shortLatency) {
+                newLimit = estimatedLimit;
+            }
+            estimatedLimit = estimatedLimit * (1D - SMOOTHING) + newLimit * SMOOTHING;
+            estimatedLimit = Math.max(minLimit, Math.min(estimatedLimit, maxLimit));
+
+            int rounded = (int) estimatedLimit;
+            if (rounded != limit) {
+                logger.debug(String.format("Concurrence limit %s -> %s, latency short: %.0f ns, long: %.0f ns",
+                        limit, rounded, shortLatency, longLatency));
+                limit = rounded;
+                resize.accept(rounded);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.johnsonmoon.queue;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An item of {@link BatchTask} waiting in the queue.
+ * Serializable for the write-ahead log when both the batch task and the item are.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 13:52.
+ */
+class BatchItem<I, T> implements SimpleTask<T>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final BatchTask<I, T> batchTask;
+    private final I item;
+
+    BatchItem(BatchTask<I, T> batchTask, I item) {
+        this.batchTask = batchTask;
+        this.item = item;
+    }
+
+    BatchTask<I, T> getBatchTask() {
+        return batchTask;
+    }
+
+    I getItem() {
+        return item;
+    }
+
+    /**
+     * Execute the item alone as a batch of one.
+     */
+    @Override
+    public T execute() {
+        List<T> results = batchTask.execute(Collections.singletonList(item));
+        return results == null || results.isEmpty() ? null : results.get(0);
+    }
+}
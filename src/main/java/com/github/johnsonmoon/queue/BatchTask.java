@@ -0,0 +1,19 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.List;
+
+/**
+ * Task executing many small items in one invocation, submitted item by item with
+ * {@link QueueTaskExecutor#submit(BatchTask, Object)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 13:48.
+ */
+public interface BatchTask<I, T> {
+    /**
+     * Execute a batch of items. Main function of a batch task.
+     *
+     * @param items items drained from the queue, in submitted order
+     * @return results of the items, same size and order as the items
+     */
+    List<T> execute(List<I> items);
+}
@@ -0,0 +1,149 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * FIFO {@link TaskQueue} guarded by a single lock, a batch of task futures is put with one lock acquisition.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 12:50.
+ */
+class BlockingTaskQueue<T> implements TaskQueue<T> {
+    private final int capacity;
+    private final ArrayDeque<TaskFuture<T>> deque;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    BlockingTaskQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.deque = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    @Override
+    public void put(TaskFuture<T> taskFuture) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (deque.size() >= capacity) {
+                notFull.await();
+            }
+            deque.addLast(taskFuture);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(TaskFuture<T> taskFuture, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (deque.size() >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            deque.addLast(taskFuture);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int putAll(List<TaskFuture<T>> taskFutures) {
+        int count = 0;
+        lock.lock();
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                while (deque.size() >= capacity) {
+                    if (count > 0) {
+                        notEmpty.signalAll();
+                    }
+                    notFull.await();
+                }
+                deque.addLast(taskFuture);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (count > 0) {
+                notEmpty.signalAll();
+            }
+            lock.unlock();
+        }
+        return count;
+    }
+
+    @Override
+    public TaskFuture<T> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (deque.isEmpty()) {
+                notEmpty.await();
+            }
+            TaskFuture<T> taskFuture = deque.pollFirst();
+            notFull.signal();
+            return taskFuture;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (deque.isEmpty()) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (!predicate.test(deque.peekFirst())) {
+                return null;
+            }
+            TaskFuture<T> taskFuture = deque.pollFirst();
+            notFull.signal();
+            return taskFuture;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> pollOldest() {
+        lock.lock();
+        try {
+            TaskFuture<T> taskFuture = deque.pollFirst();
+            if (taskFuture != null) {
+                notFull.signal();
+            }
+            return taskFuture;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return deque.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * Idempotent task whose result could be shared by tasks of the same cache key,
+ * see {@link QueueTaskExecutor#resultCacheSize(Integer)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/19 00:20.
+ */
+public interface CacheableTask<T> extends SimpleTask<T> {
+    /**
+     * Key identifying the result, compared by {@link Object#equals(Object)}.
+     *
+     * @return cache key, null for not caching this task
+     */
+    Object cacheKey();
+}
@@ -0,0 +1,214 @@
+package com.github.johnsonmoon.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TaskMetrics} recording into {@link LongAdder} counters and striped histograms, readable by JMX.
+ * <pre>
+ *  QueueTaskExecutor&lt;String&gt; executor = new QueueTaskExecutor&lt;String&gt;()
+ *          .metrics(new DefaultTaskMetrics().registerMBean("orders"))
+ *          .start();
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 18:45.
+ */
+public class DefaultTaskMetrics implements TaskMetrics, TaskMetricsMXBean {
+    private static Logger logger = LoggerFactory.getLogger(DefaultTaskMetrics.class);
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder[] outcomes = new LongAdder[TaskStatus.values().length];
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private volatile QueueTaskExecutor<?> executor;
+    private ObjectName objectName;
+
+    private long rateTime = System.nanoTime();
+    private long rateCount = 0L;
+    private double rate = 0D;
+
+    public DefaultTaskMetrics() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Register as MBean {@code com.github.johnsonmoon.queue:type=QueueTaskExecutor,name=<name>} into the platform MBean server.
+     *
+     * @param name name of the executor
+     * @return {@link DefaultTaskMetrics}
+     */
+    public DefaultTaskMetrics registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.github.johnsonmoon.queue:type=QueueTaskExecutor,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            logger.warn(String.format("Exception happened while registering metrics MBean, message: %s", e.getMessage()), e);
+        }
+        return this;
+    }
+
+    /**
+     * Unregister the MBean registered by {@link #registerMBean(String)}.
+     */
+    public void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            logger.warn(String.format("Exception happened while unregistering metrics MBean, message: %s", e.getMessage()), e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void bind(QueueTaskExecutor<?> executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void recordSubmitted(int count) {
+        submitted.add(count);
+    }
+
+    @Override
+    public void recordQueueWait(long queueWaitNanos) {
+        started.increment();
+        queueWait.record(queueWaitNanos);
+    }
+
+    @Override
+    public void recordExecution(long executionNanos) {
+        executed.increment();
+        executionTime.record(executionNanos);
+    }
+
+    @Override
+    public void recordOutcome(TaskStatus taskStatus) {
+        outcomes[taskStatus.ordinal()].increment();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        QueueTaskExecutor<?> executor = this.executor;
+        return executor == null ? 0 : executor.getQueueDepth();
+    }
+
+    @Override
+    public long getInFlightCount() {
+        // read the finished ones first, so the count is never negative
+        long finished = executed.sum();
+        return Math.max(0L, started.sum() - finished);
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public synchronized double getEnqueueRate() {
+        long now = System.nanoTime();
+        if (now - rateTime >= TimeUnit.SECONDS.toNanos(1)) {
+            long count = submitted.sum();
+            rate = (count - rateCount) * 1e9D / (now - rateTime);
+            rateTime = now;
+            rateCount = count;
+        }
+        return rate;
+    }
+
+    /**
+     * Get count of tasks finished with the status.
+     *
+     * @param taskStatus final status
+     * @return count of tasks
+     */
+    public long getOutcomeCount(TaskStatus taskStatus) {
+        return outcomes[taskStatus.ordinal()].sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return getOutcomeCount(TaskStatus.COMPLETED);
+    }
+
+    @Override
+    public long getErrorCount() {
+        return getOutcomeCount(TaskStatus.ERROR);
+    }
+
+    @Override
+    public long getCanceledCount() {
+        return getOutcomeCount(TaskStatus.CANCELED);
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return getOutcomeCount(TaskStatus.TIMEOUT);
+    }
+
+    @Override
+    public long getInterruptedCount() {
+        return getOutcomeCount(TaskStatus.INTERRUPTED);
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return getOutcomeCount(TaskStatus.REJECTED);
+    }
+
+    @Override
+    public long getQueueWaitP50() {
+        return micros(queueWait.valueAt(50D));
+    }
+
+    @Override
+    public long getQueueWaitP99() {
+        return micros(queueWait.valueAt(99D));
+    }
+
+    @Override
+    public long getQueueWaitMax() {
+        return micros(queueWait.valueAt(100D));
+    }
+
+    @Override
+    public long getExecutionTimeP50() {
+        return micros(executionTime.valueAt(50D));
+    }
+
+    @Override
+    public long getExecutionTimeP99() {
+        return micros(executionTime.valueAt(99D));
+    }
+
+    @Override
+    public long getExecutionTimeMax() {
+        return micros(executionTime.valueAt(100D));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queueDepth: %s, inFlight: %s, submitted: %s, completed: %s, error: %s, canceled: %s, timeout: %s, interrupted: %s, rejected: %s, "
+                        + "queueWait p50/p99/max: %s/%s/%s us, executionTime p50/p99/max: %s/%s/%s us",
+                getQueueDepth(), getInFlightCount(), getSubmittedCount(), getCompletedCount(), getErrorCount(), getCanceledCount(),
+                getTimeoutCount(), getInterruptedCount(), getRejectedCount(),
+                getQueueWaitP50(), getQueueWaitP99(), getQueueWaitMax(),
+                getExecutionTimeP50(), getExecutionTimeP99(), getExecutionTimeMax());
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.List;
+
+/**
+ * Task executed after its upstream tasks completed, see {@link QueueTaskExecutor#submitAfter(java.util.Collection, DependentTask)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 23:45.
+ */
+public interface DependentTask<T> {
+    /**
+     * Execute with results of the upstream tasks.
+     *
+     * @param upstreamResults exit values of the upstream tasks, in order of the upstream task futures
+     * @return result
+     */
+    T execute(List<T> upstreamResults);
+}
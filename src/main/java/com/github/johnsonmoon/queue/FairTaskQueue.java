@@ -0,0 +1,414 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * {@link TaskQueue} sharing the executor fairly between task groups, see {@link QueueTaskExecutor#fairScheduling(Boolean)}.
+ * <pre>
+ *  Every group has its own FIFO sub-queue and bound. Groups with waiting tasks are served by deficit round robin:
+ *  the group at the head of the ring takes up to its weight of tasks, then moves to the tail.
+ *  Groups executing fewer tasks than their min concurrence are served first, from a ring of their own,
+ *  and groups executing their max concurrence leave the rings until one of their tasks is done.
+ *  A group is in each ring at most once, entries gone stale are skipped when reaching the head,
+ *  so taking costs O(1) amortized whatever the count of groups.
+ *  Groups not configured are dropped when idle, their entries left in the rings are skipped as stale. Batch items do not count against the concurrence of their group.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/19 02:20.
+ */
+class FairTaskQueue<T> implements TaskQueue<T> {
+    static final String DEFAULT_GROUP = "";
+    private final int capacity;
+    private final int groupCapacity;
+    private final Map<String, Integer> weights;
+    private final Map<String, Integer> minConcurrences;
+    private final Map<String, Integer> maxConcurrences;
+    private final Map<String, Group> groups = new HashMap<>();
+    /**
+     * Groups with waiting tasks executing fewer than their min concurrence.
+     */
+    private final ArrayDeque<Group> minRing = new ArrayDeque<>();
+    /**
+     * Groups with waiting tasks executing fewer than their max concurrence.
+     */
+    private final ArrayDeque<Group> ring = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int size = 0;
+
+    /**
+     * @param capacity        max count of task futures of all groups
+     * @param groupCapacity   max count of task futures of a group
+     * @param weights         weights of groups, default 1
+     * @param minConcurrences min concurrence counts of groups, default 0
+     * @param maxConcurrences max concurrence counts of groups, default unlimited
+     */
+    FairTaskQueue(int capacity, int groupCapacity, Map<String, Integer> weights,
+                  Map<String, Integer> minConcurrences, Map<String, Integer> maxConcurrences) {
+        if (capacity < 1 || groupCapacity < 1) {
+            throw new IllegalArgumentException(String.format("Capacity must be positive: %s, %s", capacity, groupCapacity));
+        }
+        this.capacity = capacity;
+        this.groupCapacity = groupCapacity;
+        this.weights = new HashMap<>(weights);
+        this.minConcurrences = new HashMap<>(minConcurrences);
+        this.maxConcurrences = new HashMap<>(maxConcurrences);
+    }
+
+    private static String groupOf(TaskFuture<?> taskFuture) {
+        return taskFuture.getGroup() == null ? DEFAULT_GROUP : taskFuture.getGroup();
+    }
+
+    private Group group(String name) {
+        Group group = groups.get(name);
+        if (group == null) {
+            group = new Group(name);
+            groups.put(name, group);
+        }
+        return group;
+    }
+
+    /**
+     * Drop the group if it holds nothing and was not configured, a later task of it creates it again.
+     */
+    private void dropIfIdle(Group group) {
+        // entries left in the rings are stale, skipped when reaching the head
+        if (group.waiting.isEmpty() && group.executing == 0 && group.waiters == 0
+                && !weights.containsKey(group.name) && !minConcurrences.containsKey(group.name) && !maxConcurrences.containsKey(group.name)) {
+            groups.remove(group.name);
+        }
+    }
+
+    /**
+     * Wait while the queue or the group is full.
+     * <pre>
+     * Waiters on the queue are all woken when room frees, since the woken one may still find its group full.
+     * A waiter on the group that gives up passes the signal on to the next one of the group.
+     * </pre>
+     *
+     * @return false if timeout
+     */
+    private boolean awaitRoom(Group group, boolean timed, long nanos) throws InterruptedException {
+        long remaining = nanos;
+        boolean done = false;
+        try {
+            while (size >= capacity || group.waiting.size() >= groupCapacity) {
+                if (timed && remaining <= 0L) {
+                    return false;
+                }
+                Condition condition = size >= capacity ? notFull : group.notFull;
+                group.waiters++;
+                try {
+                    if (timed) {
+                        remaining = condition.awaitNanos(remaining);
+                    } else {
+                        condition.await();
+                    }
+                } finally {
+                    group.waiters--;
+                }
+            }
+            done = true;
+            return true;
+        } finally {
+            if (!done && group.waiters > 0 && group.waiting.size() < groupCapacity) {
+                group.notFull.signal();
+            }
+        }
+    }
+
+    private void add(Group group, TaskFuture<T> taskFuture) {
+        group.waiting.addLast(taskFuture);
+        size++;
+        schedule(group);
+        notEmpty.signal();
+    }
+
+    /**
+     * Put the group into the rings it belongs to.
+     */
+    private void schedule(Group group) {
+        if (group.waiting.isEmpty()) {
+            return;
+        }
+        if (!group.inMinRing && group.executing < group.minConcurrence) {
+            group.inMinRing = true;
+            minRing.addLast(group);
+        }
+        if (!group.inRing && group.executing < group.maxConcurrence) {
+            group.inRing = true;
+            ring.addLast(group);
+        }
+    }
+
+    @Override
+    public void put(TaskFuture<T> taskFuture) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Group group = group(groupOf(taskFuture));
+            awaitRoom(group, false, 0L);
+            add(group, taskFuture);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(TaskFuture<T> taskFuture, long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Group group = group(groupOf(taskFuture));
+            if (!awaitRoom(group, true, unit.toNanos(timeout))) {
+                dropIfIdle(group);
+                return false;
+            }
+            add(group, taskFuture);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int putAll(List<TaskFuture<T>> taskFutures) {
+        int count = 0;
+        lock.lock();
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                Group group = group(groupOf(taskFuture));
+                awaitRoom(group, false, 0L);
+                add(group, taskFuture);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Get the group to serve next, skipping stale ring entries, with its deficit topped up if served by weight.
+     *
+     * @return group at the head of its ring, null if no group could be served
+     */
+    private Group next() {
+        Group group;
+        while ((group = minRing.peekFirst()) != null) {
+            if (!group.waiting.isEmpty() && group.executing < group.minConcurrence) {
+                return group;
+            }
+            minRing.pollFirst();
+            group.inMinRing = false;
+            dropIfIdle(group);
+        }
+        while ((group = ring.peekFirst()) != null) {
+            if (!group.waiting.isEmpty() && group.executing < group.maxConcurrence) {
+                if (group.deficit < 1) {
+                    group.deficit += group.weight;
+                }
+                return group;
+            }
+            ring.pollFirst();
+            group.inRing = false;
+            group.deficit = 0;
+            dropIfIdle(group);
+        }
+        return null;
+    }
+
+    private TaskFuture<T> takeFrom(Group group) {
+        TaskFuture<T> taskFuture = group.waiting.pollFirst();
+        size--;
+        if (!(taskFuture.getTask() instanceof BatchItem)) {
+            group.executing++;
+        }
+        if (minRing.peekFirst() == group) {
+            // round robin between groups below their min concurrence
+            minRing.pollFirst();
+            group.inMinRing = false;
+        } else if (--group.deficit < 1 || group.waiting.isEmpty()) {
+            ring.pollFirst();
+            group.inRing = false;
+            group.deficit = 0;
+        }
+        schedule(group);
+        group.notFull.signal();
+        notFull.signalAll();
+        // a batch item does not count as executing, nothing is released for it
+        dropIfIdle(group);
+        return taskFuture;
+    }
+
+    @Override
+    public TaskFuture<T> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Group group;
+            while ((group = next()) == null) {
+                notEmpty.await();
+            }
+            return takeFrom(group);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            Group group;
+            while ((group = next()) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return predicate.test(group.waiting.peekFirst()) ? takeFrom(group) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the oldest task future of the group holding the most, the group flooding the queue pays for the room.
+     */
+    @Override
+    public TaskFuture<T> pollOldest() {
+        lock.lock();
+        try {
+            Group longest = null;
+            for (Group group : groups.values()) {
+                if (longest == null || group.waiting.size() > longest.waiting.size()) {
+                    longest = group;
+                }
+            }
+            return longest == null ? null : pollOldest(longest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the oldest task future of the group of the given one if the group is full, otherwise of the group holding the most.
+     */
+    @Override
+    public TaskFuture<T> pollOldest(TaskFuture<T> taskFuture) {
+        lock.lock();
+        try {
+            Group group = groups.get(groupOf(taskFuture));
+            if (group != null && group.waiting.size() >= groupCapacity) {
+                return pollOldest(group);
+            }
+            return pollOldest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TaskFuture<T> pollOldest(Group group) {
+        TaskFuture<T> taskFuture = group.waiting.pollFirst();
+        if (taskFuture != null) {
+            size--;
+            group.notFull.signal();
+            notFull.signalAll();
+            dropIfIdle(group);
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Count the task taken from the group as done, the group may be served again if it was at its max concurrence.
+     *
+     * @param taskFuture task future taken by {@link #take()}, not a batch item
+     */
+    void release(TaskFuture<T> taskFuture) {
+        lock.lock();
+        try {
+            Group group = groups.get(groupOf(taskFuture));
+            if (group == null || group.executing == 0 || taskFuture.getTask() instanceof BatchItem) {
+                return;
+            }
+            group.executing--;
+            if (!group.waiting.isEmpty()) {
+                schedule(group);
+                notEmpty.signal();
+            } else {
+                dropIfIdle(group);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get count of task futures of the group in the queue.
+     *
+     * @param group name of the group
+     * @return size of the group
+     */
+    int size(String group) {
+        lock.lock();
+        try {
+            Group g = groups.get(group == null ? DEFAULT_GROUP : group);
+            return g == null ? 0 : g.waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get count of groups, idle groups not configured are not counted.
+     *
+     * @return count of groups
+     */
+    int getGroupCount() {
+        lock.lock();
+        try {
+            return groups.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Group {
+        private final String name;
+        private final ArrayDeque<TaskFuture<T>> waiting = new ArrayDeque<>();
+        private final Condition notFull = lock.newCondition();
+        private final int weight;
+        private final int minConcurrence;
+        private final int maxConcurrence;
+        private int executing = 0;
+        private int deficit = 0;
+        private int waiters = 0;
+        private boolean inRing = false;
+        private boolean inMinRing = false;
+
+        private Group(String name) {
+            this.name = name;
+            this.weight = Math.max(1, weights.getOrDefault(name, 1));
+            this.minConcurrence = minConcurrences.getOrDefault(name, 0);
+            this.maxConcurrence = maxConcurrences.getOrDefault(name, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.github.johnsonmoon.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer shared by all timeouts of an executor.
+ * <pre>
+ *  Timeouts are hashed into a wheel of buckets by their deadline, a single worker thread
+ *  advances one bucket per tick and expires the timeouts due. Scheduling and cancelling
+ *  are O(1) lock-free pushes, the worker does all bucket manipulation.
+ *  Timeouts fire with tick precision, at most one tick late.
+ *  When stopped, timeouts still pending are expired or cancelled right away, and the worker thread exits.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 10:52.
+ */
+public class HashedWheelTimer {
+    private static Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Thread workerThread;
+    private final long startTime;
+    private volatile boolean stopped = false;
+
+    /**
+     * Timeouts scheduled and not yet placed into the wheel, intrusive stack linked by {@link Timeout#nextPending}.
+     */
+    private final AtomicReference<Timeout> pendingTimeouts = new AtomicReference<>();
+    /**
+     * Timeouts cancelled and not yet removed from the wheel, intrusive stack linked by {@link Timeout#nextCancelled}.
+     */
+    private final AtomicReference<Timeout> cancelledTimeouts = new AtomicReference<>();
+    private final AtomicLong pendingCount = new AtomicLong(0);
+    private volatile long tickLag = 0;
+    private volatile long maxTickLag = 0;
+
+    /**
+     * @param tickDuration duration of a tick, unit: ms
+     * @param wheelSize    count of buckets, rounded up to a power of two
+     * @param threadName   name of the worker thread
+     */
+    HashedWheelTimer(long tickDuration, int wheelSize, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::work, threadName);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * Schedule the task to run on the timer thread after the delay. The task should be short and never block.
+     * It runs right away if the timer is stopped before. {@link #schedule(Runnable, long, TimeUnit, boolean)}
+     *
+     * @param task  task to run
+     * @param delay delay before running
+     * @param unit  unit of the delay
+     * @return {@link Timeout} handle for cancelling
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, true);
+    }
+
+    /**
+     * Schedule the task to run on the timer thread after the delay. The task should be short and never block.
+     *
+     * @param task         task to run
+     * @param delay        delay before running
+     * @param unit         unit of the delay
+     * @param expireOnStop true if the task runs right away when the timer is stopped before, false if it is cancelled
+     * @return {@link Timeout} handle for cancelling
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit, boolean expireOnStop) {
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)), expireOnStop);
+        pendingCount.incrementAndGet();
+        push(pendingTimeouts, timeout, true);
+        return timeout;
+    }
+
+    /**
+     * Stop accepting timeouts, the worker thread expires or cancels the timeouts already scheduled right away, then exits.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(workerThread);
+    }
+
+    /**
+     * Get count of timeouts scheduled and neither expired nor cancelled.
+     *
+     * @return pending timeout count
+     */
+    public long getPendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Get how late the last tick ran behind its schedule, unit: ms.
+     *
+     * @return tick lag of the last tick
+     */
+    public long getTickLag() {
+        return TimeUnit.NANOSECONDS.toMillis(tickLag);
+    }
+
+    /**
+     * Get the largest tick lag observed, unit: ms.
+     *
+     * @return max tick lag
+     */
+    public long getMaxTickLag() {
+        return TimeUnit.NANOSECONDS.toMillis(maxTickLag);
+    }
+
+    private static void push(AtomicReference<Timeout> stack, Timeout timeout, boolean pending) {
+        Timeout head;
+        do {
+            head = stack.get();
+            if (pending) {
+                timeout.nextPending = head;
+            } else {
+                timeout.nextCancelled = head;
+            }
+        } while (!stack.compareAndSet(head, timeout));
+    }
+
+    private void work() {
+        long tick = 0;
+        while (!stopped) {
+            long deadline = startTime + tickNanos * (tick + 1);
+            long now;
+            while ((now = System.nanoTime()) < deadline && !stopped) {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+            if (stopped) {
+                break;
+            }
+            long lag = now - deadline;
+            tickLag = lag;
+            if (lag > maxTickLag) {
+                maxTickLag = lag;
+            }
+            removeCancelled();
+            transferPending(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+        drain();
+    }
+
+    /**
+     * Expire or cancel all timeouts left when stopped, including ones pushed by a schedule racing with stop.
+     */
+    private void drain() {
+        removeCancelled();
+        for (Bucket bucket : wheel) {
+            bucket.drain();
+        }
+        while (pendingCount.get() > 0) {
+            Timeout timeout = pendingTimeouts.getAndSet(null);
+            if (timeout == null) {
+                // counted but not pushed yet
+                Thread.yield();
+                continue;
+            }
+            while (timeout != null) {
+                Timeout next = timeout.nextPending;
+                timeout.nextPending = null;
+                timeout.stop();
+                timeout = next;
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout = cancelledTimeouts.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.nextCancelled;
+            timeout.nextCancelled = null;
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout = pendingTimeouts.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.nextPending;
+            timeout.nextPending = null;
+            if (timeout.state == Timeout.STATE_INIT) {
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private static final int STATE_INIT = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final boolean expireOnStop;
+        private volatile int state = STATE_INIT;
+        private long remainingRounds;
+        private Timeout nextPending;
+        private Timeout nextCancelled;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline, boolean expireOnStop) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            this.expireOnStop = expireOnStop;
+        }
+
+        /**
+         * Cancel the timeout.
+         *
+         * @return false if the timeout has already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) {
+                return false;
+            }
+            timer.pendingCount.decrementAndGet();
+            push(timer.cancelledTimeouts, this, false);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == STATE_EXPIRED;
+        }
+
+        private void stop() {
+            if (expireOnStop) {
+                expire();
+            } else {
+                cancel();
+            }
+        }
+
+        private void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+            timer.pendingCount.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.warn(String.format("Exception happened while timer task running, message: %s", e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only touched by the worker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private void drain() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                remove(timeout);
+                timeout.stop();
+                timeout = next;
+            }
+        }
+
+        private void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
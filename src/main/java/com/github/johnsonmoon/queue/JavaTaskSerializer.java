@@ -0,0 +1,72 @@
+package com.github.johnsonmoon.queue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link TaskSerializer} by Java serialization, tasks must be {@link Serializable}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 21:45.
+ */
+public class JavaTaskSerializer<T> implements TaskSerializer<T> {
+    @Override
+    public byte[] serialize(SimpleTask<T> task) throws IOException {
+        if (!(task instanceof Serializable)) {
+            throw new IllegalArgumentException(String.format("Task must be Serializable: %s", task == null ? null : task.getClass().getName()));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(task);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public SimpleTask<T> deserialize(ByteBuffer buffer) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+            return (SimpleTask<T>) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(String.format("Could not deserialize task, message: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Reads the buffer in place, off-heap bytes are not copied into an array first.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocation-free log-linear histogram of durations, recorded by many threads.
+ * <pre>
+ *  Values below 16 have a bucket each, above that every power of two is split into 16 buckets,
+ *  so a value is reported within 1/16 (about 6%) of what was recorded, for the whole long range.
+ *  Buckets are striped by thread, recording is one uncontended increment, reading sums the stripes.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 18:35.
+ */
+class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final int stripeMask;
+    private final AtomicLongArray buckets;
+
+    LatencyHistogram() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripeMask = Math.min(stripes, 16) - 1;
+        this.buckets = new AtomicLongArray((stripeMask + 1) * BUCKET_COUNT);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return value < 0L ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Get the highest value counted in the bucket.
+     */
+    static long highestOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        buckets.getAndIncrement(stripe * BUCKET_COUNT + indexOf(value));
+    }
+
+    /**
+     * Sum the stripes into a snapshot of bucket counts.
+     */
+    long[] snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int offset = stripe * BUCKET_COUNT;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += buckets.get(offset + i);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Get the value at the percentile of a snapshot.
+     *
+     * @param counts     snapshot of bucket counts, {@link #snapshot()}
+     * @param percentile percentile, 0 to 100, 100 for the max
+     * @return value at the percentile, 0 if nothing recorded
+     */
+    static long valueAt(long[] counts, double percentile) {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100D));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestOf(i);
+            }
+        }
+        return highestOf(counts.length - 1);
+    }
+
+    long valueAt(double percentile) {
+        return valueAt(snapshot(), percentile);
+    }
+}
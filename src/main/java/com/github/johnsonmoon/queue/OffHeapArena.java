@@ -0,0 +1,113 @@
+package com.github.johnsonmoon.queue;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct memory for queued task payloads, see {@link QueueTaskExecutor#offHeapPayloads(Boolean)}.
+ * <pre>
+ *  Memory is allocated from the JVM in chunks and cut into slots of power of two sizes,
+ *  a freed slot is kept in the free list of its size for the next payload of that size,
+ *  so the backlog costs no heap and allocating a slot is usually popping a list.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 21:50.
+ */
+class OffHeapArena {
+    static final int MIN_SLOT_SIZE = 64;
+    private final int chunkSize;
+    private final long capacity;
+    private final ArrayDeque<ByteBuffer>[] freeSlots;
+    private ByteBuffer chunk;
+    private long allocated = 0L;
+    private long used = 0L;
+
+    /**
+     * @param chunkSize size of a chunk, also the max payload size, a power of two, unit: byte
+     * @param capacity  max bytes of all chunks, unit: byte
+     */
+    @SuppressWarnings("unchecked")
+    OffHeapArena(int chunkSize, long capacity) {
+        if (Integer.bitCount(chunkSize) != 1 || chunkSize < MIN_SLOT_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be a power of two of at least " + MIN_SLOT_SIZE + ": " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.capacity = capacity;
+        this.freeSlots = new ArrayDeque[sizeClass(chunkSize) + 1];
+        for (int i = 0; i < freeSlots.length; i++) {
+            freeSlots[i] = new ArrayDeque<>();
+        }
+    }
+
+    private static int sizeClass(int length) {
+        int size = Math.max(length, MIN_SLOT_SIZE);
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SLOT_SIZE);
+    }
+
+    /**
+     * Copy the bytes into a slot.
+     *
+     * @return the slot with the bytes between position 0 and limit, null if larger than a chunk or out of capacity
+     */
+    ByteBuffer store(byte[] bytes, int offset, int length) {
+        ByteBuffer slot = allocate(length);
+        if (slot != null) {
+            // called through Buffer, the ByteBuffer overloads of JDK 9+ do not exist on Java 8
+            ((Buffer) slot).clear();
+            slot.put(bytes, offset, length);
+            ((Buffer) slot).flip();
+        }
+        return slot;
+    }
+
+    private synchronized ByteBuffer allocate(int length) {
+        if (length > chunkSize) {
+            return null;
+        }
+        int sizeClass = sizeClass(length);
+        int slotSize = MIN_SLOT_SIZE << sizeClass;
+        ByteBuffer slot = freeSlots[sizeClass].pollFirst();
+        if (slot == null) {
+            if (chunk == null || chunk.remaining() < slotSize) {
+                if (allocated + chunkSize > capacity) {
+                    return null;
+                }
+                // the rest of the previous chunk is left unused, slots are carved in growing order mostly
+                chunk = ByteBuffer.allocateDirect(chunkSize);
+                allocated += chunkSize;
+            }
+            ((Buffer) chunk).limit(chunk.position() + slotSize);
+            slot = chunk.slice();
+            ((Buffer) chunk).position(chunk.limit());
+            ((Buffer) chunk).limit(chunk.capacity());
+        }
+        used += slotSize;
+        return slot;
+    }
+
+    /**
+     * Give the slot back for later payloads.
+     */
+    synchronized void free(ByteBuffer slot) {
+        freeSlots[sizeClass(slot.capacity())].addFirst(slot);
+        used -= slot.capacity();
+    }
+
+    /**
+     * Get bytes of slots holding payloads.
+     *
+     * @return used bytes
+     */
+    synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * Get bytes of direct memory allocated.
+     *
+     * @return allocated bytes
+     */
+    synchronized long getAllocated() {
+        return allocated;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.johnsonmoon.queue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Slim handle of a task serialized into {@link OffHeapArena} while queued, it is loaded back just before executing.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 22:05.
+ */
+class OffHeapTask<T> implements SimpleTask<T> {
+    private final OffHeapArena arena;
+    private final TaskSerializer<T> serializer;
+    private final Class<?> taskClass;
+    private final Object rateLimitKey;
+    private ByteBuffer slot;
+
+    OffHeapTask(OffHeapArena arena, TaskSerializer<T> serializer, ByteBuffer slot, Class<?> taskClass, Object rateLimitKey) {
+        this.arena = arena;
+        this.serializer = serializer;
+        this.slot = slot;
+        this.taskClass = taskClass;
+        this.rateLimitKey = rateLimitKey;
+    }
+
+    Class<?> getTaskClass() {
+        return taskClass;
+    }
+
+    Object getRateLimitKey() {
+        return rateLimitKey;
+    }
+
+    /**
+     * Deserialize the task and free the slot.
+     *
+     * @return the task
+     * @throws IOException if failed to deserialize, the slot is freed anyway
+     */
+    SimpleTask<T> load() throws IOException {
+        if (slot == null) {
+            throw new IllegalStateException("Off-heap task loaded or released already");
+        }
+        try {
+            return serializer.deserialize(slot.duplicate());
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Free the slot without loading the task, for tasks finished without executing.
+     */
+    void release() {
+        if (slot != null) {
+            arena.free(slot);
+            slot = null;
+        }
+    }
+
+    @Override
+    public T execute() {
+        try {
+            return load().execute();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
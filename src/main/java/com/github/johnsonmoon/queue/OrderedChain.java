@@ -0,0 +1,24 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+
+/**
+ * Tasks of a key following the one in flight, see {@link QueueTaskExecutor#submitOrdered(Object, SimpleTask)}.
+ * Guarded by the map entry of the key, the deque is only allocated once a second task of the key arrives.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 23:20.
+ */
+class OrderedChain<T> {
+    private ArrayDeque<TaskFuture<T>> following;
+
+    void add(TaskFuture<T> taskFuture) {
+        if (following == null) {
+            following = new ArrayDeque<>(4);
+        }
+        following.addLast(taskFuture);
+    }
+
+    TaskFuture<T> poll() {
+        return following == null ? null : following.pollFirst();
+    }
+}
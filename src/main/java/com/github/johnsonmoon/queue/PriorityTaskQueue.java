@@ -0,0 +1,245 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * {@link TaskQueue} with a FIFO per priority level, the most urgent task is taken first.
+ * <pre>
+ *  Aging: a task gains one level for every aging time it has been waiting, up to the top level.
+ *  Waiting time is counted from the enqueue time stamped by the executor before putting.
+ *  Tasks of the same effective level are taken oldest first, so low priority tasks are not starved.
+ *  The capacity bounds all levels together.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 14:40.
+ */
+class PriorityTaskQueue<T> implements TaskQueue<T> {
+    private final int capacity;
+    private final long agingNanos;
+    private final ArrayDeque<TaskFuture<T>>[] levels;
+    private int count = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * @param capacity   max count of task futures of all levels
+     * @param levelCount count of priority levels, priorities are 0 (lowest) to levelCount - 1 (highest)
+     * @param agingTime  waiting time for gaining one level, unit: ms, 0 for no aging
+     */
+    @SuppressWarnings("unchecked")
+    PriorityTaskQueue(int capacity, int levelCount, long agingTime) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("Level count must be positive: " + levelCount);
+        }
+        this.capacity = capacity;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingTime);
+        this.levels = new ArrayDeque[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = new ArrayDeque<>();
+        }
+    }
+
+    private int levelOf(TaskFuture<T> taskFuture) {
+        return Math.max(0, Math.min(taskFuture.getPriority(), levels.length - 1));
+    }
+
+    private void enqueue(TaskFuture<T> taskFuture) {
+        levels[levelOf(taskFuture)].addLast(taskFuture);
+        count++;
+    }
+
+    /**
+     * Find the level whose head should be taken next, -1 if empty.
+     */
+    private int nextLevel() {
+        long now = System.nanoTime();
+        int best = -1;
+        long bestEffective = -1;
+        long bestEnqueueTime = 0;
+        for (int level = levels.length - 1; level >= 0; level--) {
+            TaskFuture<T> head = levels[level].peekFirst();
+            if (head == null) {
+                continue;
+            }
+            long effective = level;
+            if (agingNanos > 0) {
+                effective = Math.min(levels.length - 1, level + (now - head.getEnqueueTime()) / agingNanos);
+            }
+            if (effective > bestEffective || (effective == bestEffective && head.getEnqueueTime() - bestEnqueueTime < 0)) {
+                best = level;
+                bestEffective = effective;
+                bestEnqueueTime = head.getEnqueueTime();
+            }
+            if (agingNanos <= 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private TaskFuture<T> dequeue(int level) {
+        TaskFuture<T> taskFuture = levels[level].pollFirst();
+        count--;
+        notFull.signal();
+        return taskFuture;
+    }
+
+    @Override
+    public void put(TaskFuture<T> taskFuture) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            enqueue(taskFuture);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(TaskFuture<T> taskFuture, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(taskFuture);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int putAll(List<TaskFuture<T>> taskFutures) {
+        int put = 0;
+        lock.lock();
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                while (count >= capacity) {
+                    if (put > 0) {
+                        notEmpty.signalAll();
+                    }
+                    notFull.await();
+                }
+                enqueue(taskFuture);
+                put++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (put > 0) {
+                notEmpty.signalAll();
+            }
+            lock.unlock();
+        }
+        return put;
+    }
+
+    @Override
+    public TaskFuture<T> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue(nextLevel());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int level = nextLevel();
+            if (!predicate.test(levels[level].peekFirst())) {
+                return null;
+            }
+            return dequeue(level);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> pollOldest() {
+        lock.lock();
+        try {
+            int oldest = -1;
+            for (int level = 0; level < levels.length; level++) {
+                TaskFuture<T> head = levels[level].peekFirst();
+                if (head != null && (oldest < 0 || head.getEnqueueTime() - levels[oldest].peekFirst().getEnqueueTime() < 0)) {
+                    oldest = level;
+                }
+            }
+            return oldest < 0 ? null : dequeue(oldest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public TaskFuture<T> pollLowerPriority(int priority) {
+        lock.lock();
+        try {
+            for (int level = 0; level < Math.min(priority, levels.length); level++) {
+                TaskFuture<T> taskFuture = levels[level].pollLast();
+                if (taskFuture != null) {
+                    count--;
+                    notFull.signal();
+                    return taskFuture;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size(int priority) {
+        if (priority < 0 || priority >= levels.length) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            return levels[priority].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -3,8 +3,21 @@ package com.github.johnsonmoon.queue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Create by johnsonmoon at 2018/11/20 17:32.
@@ -14,6 +27,40 @@ public class QueueTaskExecutor<T> {
     private Integer taskMaxCount = 1000;
     private Integer taskConcurrenceCount = 4;
     private Integer defaultTaskTimeout = 60_000;
+    private Integer timerTickDuration = 10;
+    private Boolean virtualThreads = false;
+    private Integer batchSize = 100;
+    private Integer batchWaitTime = 0;
+    private Integer priorityLevels = 1;
+    private Integer priorityAgingTime = 1_000;
+    private Boolean workStealing = false;
+    private WaitStrategy waitStrategy = null;
+    private TaskQueue<T> taskQueue = null;
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.BLOCK;
+    private Integer submitTimeout = 1_000;
+    private Boolean adaptiveConcurrence = false;
+    private Integer minConcurrenceCount = 1;
+    private Integer maxConcurrenceCount = 64;
+    private TaskMetrics taskMetrics = null;
+    private Boolean sequentialTaskIds = false;
+    private Integer taskFuturePoolSize = 0;
+    private String persistentQueue = null;
+    private Integer logSegmentSize = 64 * 1024 * 1024;
+    private Boolean offHeapPayloads = false;
+    private Long offHeapCapacity = 256L * 1024 * 1024;
+    private TaskSerializer<T> taskSerializer = new JavaTaskSerializer<>();
+    private Integer resultCacheSize = 0;
+    private Integer resultCacheTtl = 60_000;
+    private RateLimit rateLimit = null;
+    private final Map<Class<?>, RateLimit> classRateLimits = new ConcurrentHashMap<>();
+    private Double keyRateLimit = null;
+    private Integer keyRateLimitBurst = 1;
+    private RetryPolicy retryPolicy = null;
+    private Boolean fairScheduling = false;
+    private Integer groupMaxCount = 0;
+    private final Map<String, Integer> groupWeights = new HashMap<>();
+    private final Map<String, Integer> groupMinConcurrences = new HashMap<>();
+    private final Map<String, Integer> groupMaxConcurrences = new HashMap<>();
 
     /**
      * Set Max size for task blocking queue.
@@ -30,6 +77,10 @@ public class QueueTaskExecutor<T> {
      * Set Concurrence size for executing tasks.
      * <pre>
      *  Default 4, means there will be 4 tasks at most executing at the same time.
+     *  Could also be called after {@link #start()} to resize the executor at runtime.
+     *  Resizes are applied one at a time, the last one applied wins. With adaptive concurrence the adaptive limit
+     *  is reset to this count (kept within minConcurrenceCount and maxConcurrenceCount) and keeps tuning from it,
+     *  a sample taken before this call could not resize the executor after it.
      * </pre>
      *
      * @param taskConcurrenceCount Concurrence size for executing tasks.
@@ -37,194 +88,2072 @@ public class QueueTaskExecutor<T> {
      */
     public QueueTaskExecutor<T> taskConcurrenceCount(Integer taskConcurrenceCount) {
         this.taskConcurrenceCount = taskConcurrenceCount;
+        if (concurrencyLimit != null) {
+            concurrencyLimit.reset(taskConcurrenceCount);
+        } else if (taskLatch != null) {
+            resizeConcurrence(taskConcurrenceCount);
+        } else if (workStealingDispatcher != null) {
+            logger.warn("Concurrence count could not be resized in work stealing mode.");
+        }
+        return this;
+    }
+
+    /**
+     * Set default global task execution timeout after task has been submitted.
+     *
+     * <pre>
+     *  Default timeout unit: ms, means that after task has been submitted, block wait before the task was completed.
+     * </pre>
+     *
+     * @param defaultTaskTimeout Global task execution timeout after task has been submitted.
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> defaultTaskTimeout(Integer defaultTaskTimeout) {
+        this.defaultTaskTimeout = defaultTaskTimeout;
+        return this;
+    }
+
+    /**
+     * Set tick duration of the timer enforcing task execution timeout.
+     *
+     * <pre>
+     *  Default 10, unit: ms, timeouts fire at most one tick late.
+     * </pre>
+     *
+     * @param timerTickDuration tick duration of the timeout timer
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> timerTickDuration(Integer timerTickDuration) {
+        this.timerTickDuration = timerTickDuration;
+        return this;
+    }
+
+    /**
+     * Set whether tasks are executed on virtual threads, for I/O bound tasks.
+     *
+     * <pre>
+     *  Default false. When true, every task runs on its own virtual thread and
+     *  the executing count is still limited by {@link #taskConcurrenceCount(Integer)},
+     *  which could then be set to thousands without thousands of platform threads.
+     *  Requires Java 21+, falls back to the platform thread pool on older JVMs.
+     * </pre>
+     *
+     * @param virtualThreads whether tasks are executed on virtual threads
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> virtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Set max count of {@link BatchTask} items executed in one invocation.
+     *
+     * <pre>
+     *  Default 100. When an item is taken from the queue, the following items of the same batch task
+     *  are drained with it, up to this count.
+     * </pre>
+     *
+     * @param batchSize max count of items in a batch
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> batchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Set max time waiting for more {@link BatchTask} items when the queue has been drained and the batch is not full.
+     *
+     * <pre>
+     *  Default 0, unit: us, means the batch only takes items already queued.
+     * </pre>
+     *
+     * @param batchWaitTime max time waiting for more items
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> batchWaitTime(Integer batchWaitTime) {
+        this.batchWaitTime = batchWaitTime;
+        return this;
+    }
+
+    /**
+     * Set count of task priority levels, see {@link #submitWithPriority(SimpleTask, int)}.
+     *
+     * <pre>
+     *  Default 1, means tasks are executed in submitted order (FIFO).
+     *  When greater than 1, priorities are 0 (lowest) to priorityLevels - 1 (highest),
+     *  and more urgent tasks are executed first.
+     * </pre>
+     *
+     * @param priorityLevels count of task priority levels
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> priorityLevels(Integer priorityLevels) {
+        this.priorityLevels = priorityLevels;
+        return this;
+    }
+
+    /**
+     * Set waiting time for a task to gain one priority level, so low priority tasks are not starved.
+     *
+     * <pre>
+     *  Default 1000, unit: ms, 0 means strict priority without aging.
+     * </pre>
+     *
+     * @param priorityAgingTime waiting time for gaining one priority level
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> priorityAgingTime(Integer priorityAgingTime) {
+        this.priorityAgingTime = priorityAgingTime;
+        return this;
+    }
+
+    /**
+     * Set whether tasks are dispatched by per-worker deques with work stealing, instead of a single queue.
+     *
+     * <pre>
+     *  Default false. When true, there are taskConcurrenceCount worker threads each owning a deque,
+     *  tasks are pushed to a worker chosen by affinity key (see {@link #submitWithAffinity(Object, SimpleTask)})
+     *  or randomly, and idle workers steal from busy ones. This removes the single queue lock for many cores.
+     *  Priority levels, batch draining and virtual threads are not applied in this mode,
+     *  and the concurrence count could not be resized after start.
+     * </pre>
+     *
+     * @param workStealing whether tasks are dispatched by work stealing
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> workStealing(Boolean workStealing) {
+        this.workStealing = workStealing;
+        return this;
+    }
+
+    /**
+     * Set wait strategy of a lock-free ring buffer queue, used instead of the lock based queue.
+     *
+     * <pre>
+     *  Default null, means the lock based queue. The ring buffer is preallocated from taskMaxCount
+     *  (rounded up to a power of two) and does not allocate per task, for high submit rates.
+     *  Not applied when priority levels are greater than 1.
+     * </pre>
+     *
+     * @param waitStrategy how threads wait on a full or empty ring buffer, {@link WaitStrategy}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> waitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * Set queue holding tasks waiting for executing, replacing the queue chosen by the other settings.
+     *
+     * <pre>
+     *  Default null. The queue bounds the waiting tasks itself, taskMaxCount and priorityLevels are not applied to it.
+     * </pre>
+     *
+     * @param taskQueue queue holding waiting tasks, {@link TaskQueue}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> taskQueue(TaskQueue<T> taskQueue) {
+        this.taskQueue = taskQueue;
+        return this;
+    }
+
+    /**
+     * Set what submitting does when the queue is full.
+     *
+     * <pre>
+     *  Default {@link RejectionPolicy#BLOCK}. Tasks rejected or dropped turn {@link TaskStatus#REJECTED}.
+     *  In work stealing mode the drop policies reject the submitted task, as deques are not searched for a victim.
+     *  {@link #submitAll(Collection)} always blocks.
+     * </pre>
+     *
+     * @param rejectionPolicy policy when the queue is full, {@link RejectionPolicy}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> rejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+        return this;
+    }
+
+    /**
+     * Set max waiting time for room in the queue under {@link RejectionPolicy#BLOCK_WITH_TIMEOUT}.
+     *
+     * <pre>
+     *  Default 1000, unit: ms.
+     * </pre>
+     *
+     * @param submitTimeout max waiting time for room in the queue
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> submitTimeout(Integer submitTimeout) {
+        this.submitTimeout = submitTimeout;
+        return this;
+    }
+
+    /**
+     * Set whether the concurrence count is tuned at runtime from observed task latency and queue wait.
+     *
+     * <pre>
+     *  Default false. When true, taskConcurrenceCount is the initial count, it is lowered when tasks
+     *  execute slower than usual and raised while tasks are waiting in the queue and latency is steady,
+     *  within minConcurrenceCount and maxConcurrenceCount.
+     *  Not applied in work stealing mode, batch executions are not sampled.
+     * </pre>
+     *
+     * @param adaptiveConcurrence whether the concurrence count is adaptive
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> adaptiveConcurrence(Boolean adaptiveConcurrence) {
+        this.adaptiveConcurrence = adaptiveConcurrence;
+        return this;
+    }
+
+    /**
+     * Set min concurrence count of adaptive concurrence. {@link #adaptiveConcurrence(Boolean)}
+     *
+     * <pre>
+     *  Default 1.
+     * </pre>
+     *
+     * @param minConcurrenceCount min concurrence count
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> minConcurrenceCount(Integer minConcurrenceCount) {
+        this.minConcurrenceCount = minConcurrenceCount;
+        return this;
+    }
+
+    /**
+     * Set max concurrence count of adaptive concurrence. {@link #adaptiveConcurrence(Boolean)}
+     *
+     * <pre>
+     *  Default 64.
+     * </pre>
+     *
+     * @param maxConcurrenceCount max concurrence count
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> maxConcurrenceCount(Integer maxConcurrenceCount) {
+        this.maxConcurrenceCount = maxConcurrenceCount;
+        return this;
+    }
+
+    /**
+     * Set recorder of queue depth, wait and execution time, and task outcomes.
+     *
+     * <pre>
+     *  Default null, means no metrics are recorded. {@link DefaultTaskMetrics} records into striped counters
+     *  and histograms and could be registered as a JMX MBean.
+     * </pre>
+     *
+     * @param taskMetrics metrics recorder, {@link TaskMetrics}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> metrics(TaskMetrics taskMetrics) {
+        this.taskMetrics = taskMetrics;
+        return this;
+    }
+
+    /**
+     * Set whether task ids are a sequence of the executor instead of random UUIDs.
+     *
+     * <pre>
+     *  Default false. Either way the id is only formatted when {@link TaskFuture#getTaskId()} is called,
+     *  sequential ids only cost an increment per task.
+     * </pre>
+     *
+     * @param sequentialTaskIds whether task ids are sequential
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> sequentialTaskIds(Boolean sequentialTaskIds) {
+        this.sequentialTaskIds = sequentialTaskIds;
+        return this;
+    }
+
+    /**
+     * Set max count of task futures kept for reuse, see {@link #recycle(TaskFuture)}.
+     *
+     * <pre>
+     *  Default 0, means task futures are not reused.
+     * </pre>
+     *
+     * @param taskFuturePoolSize max count of task futures kept for reuse
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> taskFuturePoolSize(Integer taskFuturePoolSize) {
+        this.taskFuturePoolSize = taskFuturePoolSize;
+        return this;
+    }
+
+    /**
+     * Set directory of the write-ahead log keeping submitted tasks across restarts.
+     *
+     * <pre>
+     *  Default null, means tasks are only kept in memory.
+     *  Tasks must be supported by the serializer, see {@link #taskSerializer(TaskSerializer)}, a submit returns once the task is forced to disk,
+     *  concurrent submits share one fsync. Tasks not done when the executor stopped or crashed,
+     *  waiting or executing, are submitted again by {@link #start()}, see {@link #getRecoveredTasks()}.
+     *  A task done just before a crash may be executed again.
+     * </pre>
+     *
+     * @param persistentQueue directory of the write-ahead log
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> persistentQueue(String persistentQueue) {
+        this.persistentQueue = persistentQueue;
+        return this;
+    }
+
+    /**
+     * Set size of a segment file of the write-ahead log. {@link #persistentQueue(String)}
+     *
+     * <pre>
+     *  Default 64MB, unit: byte. A serialized task must fit in one segment,
+     *  segments are deleted when all their tasks are done.
+     * </pre>
+     *
+     * @param logSegmentSize size of a segment file
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> logSegmentSize(Integer logSegmentSize) {
+        this.logSegmentSize = logSegmentSize;
+        return this;
+    }
+
+    /**
+     * Set whether queued tasks are serialized into direct memory, only a slim handle stays on heap until executing.
+     *
+     * <pre>
+     *  Default false. Keeps a large backlog off the heap and out of GC, at the cost of serializing every task.
+     *  Tasks the serializer does not support, batch items, and tasks beyond the capacity stay on heap.
+     *  The task is deserialized just before executing, {@link Task#before()} runs on the deserialized copy.
+     * </pre>
+     *
+     * @param offHeapPayloads whether queued tasks are stored off heap
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> offHeapPayloads(Boolean offHeapPayloads) {
+        this.offHeapPayloads = offHeapPayloads;
+        return this;
+    }
+
+    /**
+     * Set max direct memory for queued tasks. {@link #offHeapPayloads(Boolean)}
+     *
+     * <pre>
+     *  Default 256MB, unit: byte.
+     * </pre>
+     *
+     * @param offHeapCapacity max direct memory for queued tasks
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> offHeapCapacity(Long offHeapCapacity) {
+        this.offHeapCapacity = offHeapCapacity;
+        return this;
+    }
+
+    /**
+     * Set serializer of tasks stored off heap or in the write-ahead log.
+     *
+     * <pre>
+     *  Default {@link JavaTaskSerializer}, tasks must be {@link java.io.Serializable}.
+     * </pre>
+     *
+     * @param taskSerializer {@link TaskSerializer}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> taskSerializer(TaskSerializer<T> taskSerializer) {
+        this.taskSerializer = taskSerializer;
+        return this;
+    }
+
+    /**
+     * Set max count of results of {@link CacheableTask}s cached by cache key, see {@link ResultCache}.
+     *
+     * <pre>
+     *  Default 0, means results are not cached.
+     *  {@link #submit(SimpleTask)} of a cacheable task returns the task future of the same key in flight or cached,
+     *  without executing again. A shared task future is cancelled for all its submitters, and is not recycled.
+     * </pre>
+     *
+     * @param resultCacheSize max count of cached results
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> resultCacheSize(Integer resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+        return this;
+    }
+
+    /**
+     * Set time a result is cached after its task completed. {@link #resultCacheSize(Integer)}
+     *
+     * <pre>
+     *  Default 60000, unit: ms. 0 means only duplicates submitted while the task is in flight share it.
+     * </pre>
+     *
+     * @param resultCacheTtl time a result is cached
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> resultCacheTtl(Integer resultCacheTtl) {
+        this.resultCacheTtl = resultCacheTtl;
         return this;
     }
 
     /**
-     * Set default global task execution timeout after task has been submitted.
-     *
-     * <pre>
-     *  Default timeout unit: ms, means that after task has been submitted, block wait before the task was completed.
-     * </pre>
+     * Set rate limit of all tasks, enforced when dispatching.
+     *
+     * <pre>
+     *  Default null, means not limited.
+     *  A task over the limit reserves its permit and waits for it out of the thread pool, without a concurrence slot,
+     *  then it is put back into the queue. Waiting tasks keep their order per lane: the key of {@link RateLimitedTask}s,
+     *  else the class of limited tasks, else all tasks; a task of a lane with tasks waiting waits behind them.
+     *  While taskMaxCount tasks wait so, submitting blocks under {@link RejectionPolicy#BLOCK} and
+     *  {@link RejectionPolicy#BLOCK_WITH_TIMEOUT}, and is rejected under the other policies,
+     *  the executor thread never waits for permits. Batch items are not limited.
+     * </pre>
+     *
+     * @param rateLimit {@link RateLimit}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> rateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    /**
+     * Set rate limit of tasks of the class, in addition to the rate limit of all tasks. {@link #rateLimit(RateLimit)}
+     *
+     * @param taskClass class of the tasks, matched exactly
+     * @param rateLimit {@link RateLimit}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> rateLimit(Class<?> taskClass, RateLimit rateLimit) {
+        this.classRateLimits.put(taskClass, rateLimit);
+        return this;
+    }
+
+    /**
+     * Set rate limit of every key of {@link RateLimitedTask}s, in addition to the other rate limits. {@link #rateLimit(RateLimit)}
+     *
+     * <pre>
+     *  Default null, means not limited by key. The limit of a key is dropped once it refilled to the whole burst.
+     * </pre>
+     *
+     * @param keyRateLimit permits per second of a key
+     * @param burst        count of permits of a key that could pass at once
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> keyRateLimit(Double keyRateLimit, Integer burst) {
+        this.keyRateLimit = keyRateLimit;
+        this.keyRateLimitBurst = burst;
+        return this;
+    }
+
+    /**
+     * Set policy of retrying tasks whose execution threw, see {@link RetryPolicy}.
+     *
+     * <pre>
+     *  Default null, means a task turns {@link TaskStatus#ERROR} when its execution threw.
+     *  Either way the exception is kept by {@link TaskFuture#getCause()}. Batch items are not retried.
+     * </pre>
+     *
+     * @param retryPolicy {@link RetryPolicy}
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Set whether the executor is shared fairly between task groups, see {@link #submitToGroup(String, SimpleTask)}.
+     *
+     * <pre>
+     *  Default false. When true, every group has its own sub-queue, and groups with waiting tasks are served
+     *  in turn by their weights (deficit round robin), so a group flooding the queue does not starve the others.
+     *  Tasks submitted without group are in the default group "".
+     *  Replaces priority levels and the ring buffer queue, not applied in work stealing mode.
+     * </pre>
+     *
+     * @param fairScheduling whether tasks are scheduled fairly between groups
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> fairScheduling(Boolean fairScheduling) {
+        this.fairScheduling = fairScheduling;
+        return this;
+    }
+
+    /**
+     * Set max count of waiting tasks of a group in fair scheduling mode. {@link #fairScheduling(Boolean)}
+     *
+     * <pre>
+     *  Default 0, means taskMaxCount. The rejection policy applies when the group is full,
+     *  {@link RejectionPolicy#DROP_OLDEST} drops the oldest task of the group.
+     * </pre>
+     *
+     * @param groupMaxCount max count of waiting tasks of a group
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> groupMaxCount(Integer groupMaxCount) {
+        this.groupMaxCount = groupMaxCount;
+        return this;
+    }
+
+    /**
+     * Set weight of the group in fair scheduling mode. {@link #fairScheduling(Boolean)}
+     *
+     * <pre>
+     *  Default 1. A group of weight 3 takes 3 tasks in its turn, so it gets 3 times the dispatches of a group of weight 1
+     *  while both have waiting tasks.
+     * </pre>
+     *
+     * @param group  name of the group
+     * @param weight weight of the group
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> groupWeight(String group, Integer weight) {
+        this.groupWeights.put(group, weight);
+        return this;
+    }
+
+    /**
+     * Set min and max count of executing tasks of the group in fair scheduling mode. {@link #fairScheduling(Boolean)}
+     *
+     * <pre>
+     *  Default 0 and unlimited. Waiting tasks of a group executing fewer than min are taken before weighted turns,
+     *  so min is a share served first, not slots reserved while the group is idle.
+     *  A group executing max tasks is skipped until one of them is done. Batch items are not counted.
+     * </pre>
+     *
+     * @param group          name of the group
+     * @param minConcurrence min count of executing tasks of the group, served first
+     * @param maxConcurrence max count of executing tasks of the group, null for unlimited
+     * @return {@link QueueTaskExecutor}
+     */
+    public QueueTaskExecutor<T> groupConcurrence(String group, Integer minConcurrence, Integer maxConcurrence) {
+        if (minConcurrence != null && minConcurrence > 0) {
+            this.groupMinConcurrences.put(group, minConcurrence);
+        }
+        if (maxConcurrence != null) {
+            this.groupMaxConcurrences.put(group, maxConcurrence);
+        }
+        return this;
+    }
+
+    /**
+     * Shutdown flag
+     */
+    private AtomicBoolean shutdown = new AtomicBoolean(false);
+    /**
+     * Blocking queue for task {@link SimpleTask}
+     */
+    private TaskQueue<T> taskFutureBlockingQueue;
+    /**
+     * Executor loop thread, blocks on free capacity of {@link #taskLatch} and then on {@link #taskFutureBlockingQueue}.
+     */
+    private Thread executorThread;
+    /**
+     * Shared timer for task execution timeout.
+     */
+    private HashedWheelTimer taskTimeoutTimer;
+    /**
+     * Thread pool for task executing.
+     */
+    private ExecutorService taskExecutionThreadPool;
+    /**
+     * Available count of tasks for executing. {@link TaskStatus#EXECUTING}
+     */
+    private TaskLatch taskLatch;
+    /**
+     * The queue when {@link #fairScheduling} is true, counting executing tasks of groups.
+     */
+    private FairTaskQueue<T> fairTaskQueue;
+    /**
+     * Engine replacing the queue, executor thread and thread pool when {@link #workStealing} is true.
+     */
+    private WorkStealingDispatcher<T> workStealingDispatcher;
+    /**
+     * Tunes the concurrence count when {@link #adaptiveConcurrence} is true.
+     */
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    /**
+     * Task futures released by both the executor and the user, when {@link #taskFuturePoolSize} is positive.
+     */
+    private RingBufferTaskQueue<T> taskFuturePool;
+    /**
+     * Write-ahead log of submitted tasks when {@link #persistentQueue} is set.
+     */
+    private TaskLog taskLog;
+    private TaskBatch<T> recoveredTasks;
+    /**
+     * Direct memory of queued tasks when {@link #offHeapPayloads} is true.
+     */
+    private OffHeapArena offHeapArena;
+    /**
+     * Task futures of {@link CacheableTask}s when {@link #resultCacheSize} is positive.
+     */
+    private ResultCache<T> resultCache;
+    /**
+     * Rate limits of keys of {@link RateLimitedTask}s when {@link #keyRateLimit} is set.
+     */
+    private final ConcurrentHashMap<Object, RateLimit> keyRateLimits = new ConcurrentHashMap<>();
+    private final AtomicLong keyReservationCount = new AtomicLong(0L);
+    /**
+     * Count of tasks waiting for rate limit permits on the timer.
+     */
+    private final AtomicInteger deferredCount = new AtomicInteger(0);
+    /**
+     * Submitters held back while taskMaxCount tasks wait for rate limit permits. {@link #awaitDeferred(boolean, RejectionPolicy)}
+     */
+    private final ReentrantLock deferredLock = new ReentrantLock();
+    private final Condition deferredNotFull = deferredLock.newCondition();
+    private final AtomicInteger deferredWaiters = new AtomicInteger(0);
+    /**
+     * Tasks waiting for rate limit permits in order of their lane, idle lanes are removed. {@link RateLimitLane}
+     */
+    private final ConcurrentHashMap<Object, RateLimitLane<T>> rateLimitLanes = new ConcurrentHashMap<>();
+    private static final Object ALL_TASKS_LANE = new Object();
+    /**
+     * Tasks of every key submitted by {@link #submitOrdered(Object, SimpleTask)} with one in flight, idle keys are removed.
+     */
+    private final ConcurrentHashMap<Object, OrderedChain<T>> orderedChains = new ConcurrentHashMap<>();
+    private final AtomicLong taskSequence = new AtomicLong(0L);
+    /**
+     * Execution timeout and priority before the serialized task in a payload.
+     */
+    private static final int PAYLOAD_HEADER_SIZE = 8 + 4;
+
+    /**
+     * Get the latch limiting executing tasks, for inspecting available/executing count.
+     *
+     * @return {@link TaskLatch}, null before {@link #start()} or in work stealing mode
+     */
+    public TaskLatch getTaskLatch() {
+        return taskLatch;
+    }
+
+    /**
+     * Get the timer enforcing task execution timeout, for inspecting pending timeouts and tick lag.
+     *
+     * @return {@link HashedWheelTimer}, null before {@link #start()}
+     */
+    public HashedWheelTimer getTimeoutTimer() {
+        return taskTimeoutTimer;
+    }
+
+    /**
+     * Get tasks recovered from the write-ahead log by {@link #start()}. {@link #persistentQueue(String)}
+     *
+     * @return {@link TaskBatch} of the recovered tasks, null before {@link #start()} or without persistent queue
+     */
+    public TaskBatch<T> getRecoveredTasks() {
+        return recoveredTasks;
+    }
+
+    /**
+     * Get the cache of results of {@link CacheableTask}s, for inspecting hit, miss and eviction counts.
+     *
+     * @return {@link ResultCache}, null before {@link #start()} or when results are not cached
+     */
+    public ResultCache<T> getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Get count of tasks waiting in the queue, including tasks waiting for rate limit permits.
+     *
+     * @return queue depth, 0 before {@link #start()}
+     */
+    public int getQueueDepth() {
+        if (workStealingDispatcher != null) {
+            return workStealingDispatcher.size() + deferredCount.get();
+        }
+        return taskFutureBlockingQueue == null ? 0 : taskFutureBlockingQueue.size() + deferredCount.get();
+    }
+
+    /**
+     * Get count of tasks of the priority waiting in the queue.
+     *
+     * @param priority priority of the tasks
+     * @return queue depth of the priority, 0 before {@link #start()}
+     */
+    public int getQueueDepth(int priority) {
+        return taskFutureBlockingQueue == null ? 0 : taskFutureBlockingQueue.size(priority);
+    }
+
+    /**
+     * Get count of tasks of the group waiting in the queue. {@link #fairScheduling(Boolean)}
+     *
+     * @param group name of the group
+     * @return queue depth of the group, 0 before {@link #start()} or when not in fair scheduling mode
+     */
+    public int getQueueDepth(String group) {
+        return fairTaskQueue == null ? 0 : fairTaskQueue.size(group);
+    }
+
+    /**
+     * Submit task.
+     *
+     * @param task {@link SimpleTask}
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submit(SimpleTask<T> task) {
+        if (resultCache != null && task instanceof CacheableTask) {
+            return submitCached((CacheableTask<T>) task, null);
+        }
+        return enqueue(newTaskFuture(task));
+    }
+
+    /**
+     * Submit task.
+     *
+     * @param task             {@link SimpleTask}
+     * @param executionTimeout timeout after task executing.
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submit(SimpleTask<T> task, long executionTimeout) {
+        if (resultCache != null && task instanceof CacheableTask) {
+            return submitCached((CacheableTask<T>) task, executionTimeout);
+        }
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        taskFuture.setExecutionTimeout(executionTimeout);
+        return enqueue(taskFuture);
+    }
+
+    /**
+     * Schedule task to be submitted after the delay.
+     * <pre>
+     *  Pending schedules are held by the timer wheel, not by threads or the queue,
+     *  the task is put into the queue when the delay passed, the task future stays {@link TaskStatus#WAITING} until executing.
+     *  If the executor is stopped before, the task future turns {@link TaskStatus#INTERRUPTED} right away.
+     *  While the queue is full the submit is retried every timer tick, whatever the rejection policy.
+     *  Scheduled tasks are kept on heap and not logged. {@link #persistentQueue(String)}
+     * </pre>
+     *
+     * @param task  {@link SimpleTask}
+     * @param delay delay before submitting, unit: ms
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> schedule(SimpleTask<T> task, long delay) {
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        try {
+            taskTimeoutTimer.schedule(() -> fire(taskFuture), delay, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            logger.warn(String.format("Task executor stopped, task not scheduled, taskId: %s", taskFuture.getTaskId()));
+            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Schedule task to be submitted periodically, firings start at initialDelay, initialDelay + period, and so on.
+     * A firing is skipped while the previous one is still waiting or executing. See {@link #schedule(SimpleTask, long)}
+     *
+     * @param task         {@link SimpleTask}
+     * @param initialDelay delay before the first firing, unit: ms
+     * @param period       period between firings, unit: ms
+     * @return {@link ScheduledTask}
+     */
+    public ScheduledTask<T> scheduleAtFixedRate(SimpleTask<T> task, long initialDelay, long period) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        return new ScheduledTask<>(this, task, initialDelay, period, true).start();
+    }
+
+    /**
+     * Schedule task to be submitted periodically, the next firing is the delay after the previous firing is done.
+     * See {@link #schedule(SimpleTask, long)}
+     *
+     * @param task         {@link SimpleTask}
+     * @param initialDelay delay before the first firing, unit: ms
+     * @param delay        delay between a firing done and the next firing, unit: ms
+     * @return {@link ScheduledTask}
+     */
+    public ScheduledTask<T> scheduleWithFixedDelay(SimpleTask<T> task, long initialDelay, long delay) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException("Delay must not be negative: " + delay);
+        }
+        return new ScheduledTask<>(this, task, initialDelay, delay, false).start();
+    }
+
+    /**
+     * Put the task future into the queue without blocking current thread, the timer thread or an executing thread.
+     * While the queue is full, it is retried after a timer tick.
+     */
+    void fire(TaskFuture<T> taskFuture) {
+        fire(taskFuture, true);
+    }
+
+    /**
+     * Put the task future into the queue without blocking, see {@link #fire(TaskFuture)}.
+     *
+     * @param submitting {@code false} if put back after deferred or failed, so it is not counted as submitted again
+     */
+    private void fire(TaskFuture<T> taskFuture, boolean submitting) {
+        if (taskFuture.getTaskStatus() != TaskStatus.WAITING || shutdown.get()) {
+            // cancelled before firing
+            taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+            return;
+        }
+        boolean accepted;
+        try {
+            taskFuture.setEnqueueTime(System.nanoTime());
+            accepted = workStealingDispatcher != null
+                    ? workStealingDispatcher.offer(taskFuture, null, 0L)
+                    : taskFutureBlockingQueue.offer(taskFuture, 0L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            accepted = false;
+        }
+        if (accepted) {
+            if (submitting) {
+                recordSubmitted();
+            }
+            return;
+        }
+        try {
+            taskTimeoutTimer.schedule(() -> fire(taskFuture, submitting), timerTickDuration, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        }
+    }
+
+    /**
+     * Return the task future of the cache key in flight or cached, or submit the task and cache its task future.
+     */
+    private TaskFuture<T> submitCached(CacheableTask<T> task, Long executionTimeout) {
+        Object key = task.cacheKey();
+        if (key == null) {
+            TaskFuture<T> taskFuture = newTaskFuture(task);
+            taskFuture.setExecutionTimeout(executionTimeout);
+            return enqueue(taskFuture);
+        }
+        @SuppressWarnings("unchecked")
+        TaskFuture<T>[] created = new TaskFuture[1];
+        TaskFuture<T> taskFuture = resultCache.computeIfAbsent(key, k -> created[0] = newTaskFuture(task));
+        if (created[0] == null) {
+            return taskFuture;
+        }
+        taskFuture.setExecutionTimeout(executionTimeout);
+        taskFuture.whenComplete((result, taskStatus) -> resultCache.onDone(key, taskFuture, taskStatus));
+        return enqueue(taskFuture);
+    }
+
+    /**
+     * Submit task with affinity key, tasks of the same key are pushed to the same worker in work stealing mode
+     * so cache-local work stays on one thread, while idle workers may still steal them.
+     * The key is ignored when not in work stealing mode. {@link #workStealing(Boolean)}
+     *
+     * @param affinityKey key choosing the worker
+     * @param task        {@link SimpleTask}
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submitWithAffinity(Object affinityKey, SimpleTask<T> task) {
+        return enqueue(newTaskFuture(task), affinityKey, true);
+    }
+
+    /**
+     * Submit task in order of its key, tasks of the same key are executed one after another in submitted order,
+     * while tasks of different keys are executed in parallel.
+     * <pre>
+     *  Only the oldest task of a key is put into the queue, the following ones wait in a chain of the key,
+     *  and the next one is put when the previous one is done, whatever its status.
+     *  A key costs a map entry only while it has tasks in flight.
+     *  Following tasks are put without blocking the executing thread, retried every timer tick while the queue is full.
+     *  Every task is logged and moved off heap when submitted, following ones included,
+     *  but the key is not logged: tasks recovered from the write-ahead log are queued without order of their key.
+     * </pre>
+     *
+     * @param key  key ordering the tasks, compared by {@link Object#equals(Object)}
+     * @param task {@link SimpleTask}
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submitOrdered(Object key, SimpleTask<T> task) {
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        if ((taskLog != null || offHeapArena != null) && !store(Collections.singletonList(taskFuture))) {
+            return taskFuture;
+        }
+        boolean[] head = new boolean[1];
+        orderedChains.compute(key, (k, chain) -> {
+            if (chain == null) {
+                head[0] = true;
+                return new OrderedChain<>();
+            }
+            chain.add(taskFuture);
+            return chain;
+        });
+        if (head[0]) {
+            taskFuture.whenComplete((result, taskStatus) -> advance(key));
+            enqueueStored(taskFuture, null, true);
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Put the next task of the key after the previous one is done, or remove the key if no task follows.
+     */
+    private void advance(Object key) {
+        while (true) {
+            @SuppressWarnings("unchecked")
+            TaskFuture<T>[] next = new TaskFuture[1];
+            orderedChains.computeIfPresent(key, (k, chain) -> {
+                next[0] = chain.poll();
+                return next[0] == null ? null : chain;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            if (next[0].isDone()) {
+                // cancelled while following
+                recordOutcome(next[0]);
+                finish(next[0], true);
+                continue;
+            }
+            TaskFuture<T> taskFuture = next[0];
+            taskFuture.whenComplete((result, taskStatus) -> advance(key));
+            fire(taskFuture);
+            return;
+        }
+    }
+
+    /**
+     * Get count of keys with ordered tasks in flight. {@link #submitOrdered(Object, SimpleTask)}
+     *
+     * @return count of keys
+     */
+    int getOrderedKeyCount() {
+        return orderedChains.size();
+    }
+
+    /**
+     * Submit task to be executed after all upstream tasks completed, with their results as input.
+     * <pre>
+     *  The task is put into the queue by the completion of its last upstream task, no thread waits for the upstream tasks,
+     *  it is put without blocking the completing thread, retried every timer tick while the queue is full.
+     *  If any upstream task turns another final status than {@link TaskStatus#COMPLETED}, the task turns
+     *  {@link TaskStatus#CANCELED} without executing, and so do the tasks depending on it.
+     *  Upstream task futures must not be recycled before the task is done. {@link #recycle(TaskFuture)}
+     *  Not supported in persistent queue mode, as the results of upstream tasks could not be recovered,
+     *  and the task is kept on heap with off-heap payloads.
+     * </pre>
+     *
+     * @param upstreams task futures of upstream tasks submitted to this executor, the task is queued at once if empty
+     * @param task      {@link DependentTask}
+     * @return {@link TaskFuture}
+     * @throws IllegalStateException in persistent queue mode, see {@link #persistentQueue(String)}
+     */
+    public TaskFuture<T> submitAfter(Collection<TaskFuture<T>> upstreams, DependentTask<T> task) {
+        if (persistentQueue != null) {
+            throw new IllegalStateException("Dependent tasks are not supported in persistent queue mode.");
+        }
+        TaskDependency<T> dependency = new TaskDependency<>(new ArrayList<>(upstreams), task);
+        TaskFuture<T> taskFuture = newTaskFuture(dependency);
+        if (upstreams.isEmpty()) {
+            return enqueue(taskFuture);
+        }
+        for (TaskFuture<T> upstream : dependency.getUpstreams()) {
+            upstream.whenComplete((result, taskStatus) -> {
+                if (taskStatus == TaskStatus.COMPLETED) {
+                    if (dependency.onCompleted()) {
+                        fire(taskFuture);
+                    }
+                } else if (dependency.onFailed()) {
+                    if (taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.CANCELED) && logger.isDebugEnabled()) {
+                        logger.debug(String.format("Task canceled by upstream task %s %s, taskId: %s", upstream.getTaskId(), taskStatus, taskFuture.getTaskId()));
+                    }
+                    recordOutcome(taskFuture);
+                    finish(taskFuture, true);
+                }
+            });
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Submit task of the group, groups share the executor fairly in fair scheduling mode, see {@link #fairScheduling(Boolean)}.
+     * The group is ignored when not in fair scheduling mode.
+     *
+     * @param group name of the group, null for the default group
+     * @param task  {@link SimpleTask}
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submitToGroup(String group, SimpleTask<T> task) {
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        taskFuture.setGroup(group);
+        return enqueue(taskFuture);
+    }
+
+    /**
+     * Submit task without blocking. When the queue is full, the task is rejected, or another task is dropped for it
+     * under the drop policies, see {@link #rejectionPolicy(RejectionPolicy)}.
+     *
+     * @param task {@link SimpleTask}
+     * @return {@link TaskFuture}, {@link TaskStatus#REJECTED} if not accepted
+     */
+    public TaskFuture<T> trySubmit(SimpleTask<T> task) {
+        return enqueue(newTaskFuture(task), null, false);
+    }
+
+    /**
+     * Submit task with priority.
+     *
+     * @param task     {@link SimpleTask}
+     * @param priority priority of the task, 0 (lowest) to priorityLevels - 1 (highest), see {@link #priorityLevels(Integer)}
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submitWithPriority(SimpleTask<T> task, int priority) {
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        taskFuture.setPriority(clampPriority(priority));
+        return enqueue(taskFuture);
+    }
+
+    /**
+     * Submit task with priority.
+     *
+     * @param task             {@link SimpleTask}
+     * @param priority         priority of the task, 0 (lowest) to priorityLevels - 1 (highest), see {@link #priorityLevels(Integer)}
+     * @param executionTimeout timeout after task executing.
+     * @return {@link TaskFuture}
+     */
+    public TaskFuture<T> submitWithPriority(SimpleTask<T> task, int priority, long executionTimeout) {
+        TaskFuture<T> taskFuture = newTaskFuture(task);
+        taskFuture.setPriority(clampPriority(priority));
+        taskFuture.setExecutionTimeout(executionTimeout);
+        return enqueue(taskFuture);
+    }
+
+    private int clampPriority(int priority) {
+        return Math.max(0, Math.min(priority, priorityLevels - 1));
+    }
+
+    /**
+     * Submit an item of the batch task. Items of the same batch task queued together are executed
+     * in one {@link BatchTask#execute(List)} invocation, see {@link #batchSize(Integer)}.
+     *
+     * @param batchTask {@link BatchTask}
+     * @param item      item of the batch task
+     * @param <I>       type of the item
+     * @return {@link TaskFuture} of the item
+     */
+    public <I> TaskFuture<T> submit(BatchTask<I, T> batchTask, I item) {
+        return enqueue(newTaskFuture(new BatchItem<>(batchTask, item)));
+    }
+
+    /**
+     * Submit a batch of tasks, they are put into the queue in order with one queue operation.
+     * <pre>
+     *  Blocks while the queue is full, tasks not put because of interrupting turn {@link TaskStatus#INTERRUPTED}.
+     * </pre>
+     *
+     * @param tasks {@link SimpleTask}s
+     * @return {@link TaskBatch} for waiting the tasks
+     */
+    public TaskBatch<T> submitAll(Collection<? extends SimpleTask<T>> tasks) {
+        List<TaskFuture<T>> taskFutures = new ArrayList<>(tasks.size());
+        for (SimpleTask<T> task : tasks) {
+            taskFutures.add(newTaskFuture(task));
+        }
+        TaskBatch<T> taskBatch = new TaskBatch<>(taskFutures);
+        if ((taskLog != null || offHeapArena != null) && !store(taskFutures)) {
+            return taskBatch;
+        }
+        int count = putAll(taskFutures);
+        if (taskMetrics != null) {
+            taskMetrics.recordSubmitted(count);
+        }
+        if (count < taskFutures.size()) {
+            logger.warn(String.format("Interrupted while submitting tasks, %s of %s tasks submitted.", count, taskFutures.size()));
+            for (int i = count; i < taskFutures.size(); i++) {
+                taskFutures.get(i).setTaskStatus(TaskStatus.INTERRUPTED);
+                recordOutcome(taskFutures.get(i));
+                finish(taskFutures.get(i), true);
+            }
+        }
+        return taskBatch;
+    }
+
+    /**
+     * Put all the task futures in order, blocking while the queue is full.
+     *
+     * @return count of task futures put, less than the size only if interrupted
+     */
+    private int putAll(List<TaskFuture<T>> taskFutures) {
+        long now = System.nanoTime();
+        for (TaskFuture<T> taskFuture : taskFutures) {
+            taskFuture.setEnqueueTime(now);
+        }
+        return workStealingDispatcher != null ? putAllWorkStealing(taskFutures) : taskFutureBlockingQueue.putAll(taskFutures);
+    }
+
+    private int putAllWorkStealing(List<TaskFuture<T>> taskFutures) {
+        int count = 0;
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                workStealingDispatcher.put(taskFuture, null);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return count;
+    }
+
+    TaskFuture<T> newTaskFuture(SimpleTask<T> task) {
+        long sequence = sequentialTaskIds ? taskSequence.incrementAndGet() : -1L;
+        if (taskFuturePool != null) {
+            TaskFuture<T> taskFuture = taskFuturePool.poll(null);
+            if (taskFuture != null) {
+                taskFuture.reset(task, sequence);
+                return taskFuture;
+            }
+        }
+        return new TaskFuture<>(task, sequence);
+    }
+
+    /**
+     * Give a done task future back for reuse by later submits, see {@link #taskFuturePoolSize(Integer)}.
+     * <pre>
+     *  The task future is reused once the executor has also finished with it,
+     *  so it must not be touched by the caller, or waited for by any other thread, after this call.
+     *  Task futures of batch items, or whose execution timeout fired, are not reused.
+     * </pre>
+     *
+     * @param taskFuture done task future submitted to this executor
+     * @return false if reuse is disabled, the task future is not done or shared by the result cache, the caller could keep using it
+     */
+    public boolean recycle(TaskFuture<T> taskFuture) {
+        if (taskFuturePool == null || !taskFuture.isDone()) {
+            return false;
+        }
+        if (resultCache != null && taskFuture.getTask() instanceof CacheableTask) {
+            // may be shared by other submitters
+            return false;
+        }
+        if (taskFuture.release(TaskFuture.RELEASED_BY_USER)) {
+            taskFuturePool.offer(taskFuture);
+        }
+        return true;
+    }
+
+    /**
+     * Mark the executor finished with the task future, it would not be touched by the executor after this.
+     *
+     * @param recyclable false if an action scheduled on the task future may still run, such as an expired timeout
+     */
+    private void finish(TaskFuture<T> taskFuture, boolean recyclable) {
+        if (taskFuture.getTask() instanceof OffHeapTask) {
+            // finished without executing
+            ((OffHeapTask<T>) taskFuture.getTask()).release();
+        }
+        if (taskFuturePool != null
+                && taskFuture.release(TaskFuture.RELEASED_BY_EXECUTOR | (recyclable ? 0 : TaskFuture.NOT_RECYCLABLE))) {
+            taskFuturePool.offer(taskFuture);
+        }
+    }
+
+    private TaskFuture<T> enqueue(TaskFuture<T> taskFuture) {
+        return enqueue(taskFuture, null, true);
+    }
+
+    /**
+     * Put the task future into the queue by the rejection policy.
+     *
+     * @param taskFuture  task future
+     * @param affinityKey key choosing the worker in work stealing mode, null for a random worker
+     * @param blocking    whether the submitter may be blocked or run the task, false for {@link #trySubmit(SimpleTask)}
+     * @return the task future
+     */
+    private TaskFuture<T> enqueue(TaskFuture<T> taskFuture, Object affinityKey, boolean blocking) {
+        if ((taskLog != null || offHeapArena != null) && !store(Collections.singletonList(taskFuture))) {
+            return taskFuture;
+        }
+        return enqueueStored(taskFuture, affinityKey, blocking);
+    }
+
+    /**
+     * Put the task future already logged and moved off heap into the queue by the rejection policy.
+     * {@link #enqueue(TaskFuture, Object, boolean)}
+     */
+    private TaskFuture<T> enqueueStored(TaskFuture<T> taskFuture, Object affinityKey, boolean blocking) {
+        taskFuture.setEnqueueTime(System.nanoTime());
+        RejectionPolicy policy = rejectionPolicy;
+        try {
+            if (deferredCount.get() >= taskMaxCount && !awaitDeferred(blocking, policy)) {
+                reject(taskFuture);
+                return taskFuture;
+            }
+            if (blocking && policy == RejectionPolicy.BLOCK) {
+                if (workStealingDispatcher != null) {
+                    workStealingDispatcher.put(taskFuture, affinityKey);
+                } else {
+                    taskFutureBlockingQueue.put(taskFuture);
+                }
+                recordSubmitted();
+                return taskFuture;
+            }
+            long timeout = blocking && policy == RejectionPolicy.BLOCK_WITH_TIMEOUT ? submitTimeout : 0L;
+            boolean accepted = workStealingDispatcher != null
+                    ? workStealingDispatcher.offer(taskFuture, affinityKey, timeout)
+                    : taskFutureBlockingQueue.offer(taskFuture, timeout, TimeUnit.MILLISECONDS);
+            if (!accepted && workStealingDispatcher == null
+                    && (policy == RejectionPolicy.DROP_OLDEST || policy == RejectionPolicy.DROP_LOWEST_PRIORITY)) {
+                accepted = offerDropping(taskFuture, policy);
+            }
+            if (accepted) {
+                recordSubmitted();
+                return taskFuture;
+            }
+            if (blocking && policy == RejectionPolicy.CALLER_RUNS) {
+                recordSubmitted();
+                runTask(taskFuture);
+                return taskFuture;
+            }
+            reject(taskFuture);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(String.format("Interrupted while submitting task, taskId: %s", taskFuture.getTaskId()));
+            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        } catch (Exception e) {
+            logger.warn(e.getMessage(), e);
+            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Drop waiting task futures by the policy until the task future is put.
+     *
+     * @return {@code true} if put, {@code false} if there is no task future to drop for it
+     */
+    private boolean offerDropping(TaskFuture<T> taskFuture, RejectionPolicy policy) throws InterruptedException {
+        while (!taskFutureBlockingQueue.offer(taskFuture, 0L, TimeUnit.MILLISECONDS)) {
+            TaskFuture<T> victim = policy == RejectionPolicy.DROP_OLDEST
+                    ? taskFutureBlockingQueue.pollOldest(taskFuture)
+                    : taskFutureBlockingQueue.pollLowerPriority(taskFuture.getPriority());
+            if (victim != null) {
+                reject(victim);
+            } else if (policy == RejectionPolicy.DROP_LOWEST_PRIORITY) {
+                // room may have been made by the executor meanwhile
+                return taskFutureBlockingQueue.offer(taskFuture, 0L, TimeUnit.MILLISECONDS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serialize the tasks once, append them to the write-ahead log and move them off heap, before they are queued.
+     * A task is logged before queued so a DONE record never precedes its SUBMIT record.
+     *
+     * @return false if not appended, the task futures turn {@link TaskStatus#INTERRUPTED}
+     * @throws IllegalArgumentException if a task is not supported by the serializer in persistent queue mode
+     */
+    private boolean store(List<TaskFuture<T>> taskFutures) {
+        List<byte[]> payloads = new ArrayList<>(taskFutures.size());
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                payloads.add(encode(taskFuture));
+            }
+            if (taskLog != null) {
+                long[] sequences = taskLog.appendSubmit(payloads);
+                for (int i = 0; i < sequences.length; i++) {
+                    taskFutures.get(i).setLogSequence(sequences[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while appending tasks to task log.");
+            interrupt(taskFutures);
+            return false;
+        } catch (IOException e) {
+            logger.warn(String.format("Exception happened while appending tasks to task log, message: %s", e.getMessage()), e);
+            interrupt(taskFutures);
+            return false;
+        }
+        if (offHeapArena != null) {
+            for (int i = 0; i < taskFutures.size(); i++) {
+                offload(taskFutures.get(i), payloads.get(i));
+            }
+        }
+        return true;
+    }
+
+    private void interrupt(List<TaskFuture<T>> taskFutures) {
+        for (TaskFuture<T> taskFuture : taskFutures) {
+            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        }
+    }
+
+    /**
+     * Serialize the task after a header of its execution timeout and priority.
+     *
+     * @return the payload, null if the task is not supported and need not be logged
+     */
+    private byte[] encode(TaskFuture<T> taskFuture) throws IOException {
+        byte[] task;
+        try {
+            task = taskSerializer.serialize(taskFuture.getTask());
+        } catch (IllegalArgumentException | IOException e) {
+            if (taskLog != null) {
+                throw e;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("Task kept on heap, message: %s", e.getMessage()));
+            }
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_HEADER_SIZE + task.length);
+        payload.putLong(taskFuture.getExecutionTimeout() == null ? -1L : taskFuture.getExecutionTimeout());
+        payload.putInt(taskFuture.getPriority());
+        payload.put(task);
+        return payload.array();
+    }
+
+    private TaskFuture<T> decode(TaskLog.Record record) throws IOException {
+        ByteBuffer payload = ByteBuffer.wrap(record.payload);
+        long executionTimeout = payload.getLong();
+        int priority = payload.getInt();
+        TaskFuture<T> taskFuture = newTaskFuture(taskSerializer.deserialize(payload));
+        if (executionTimeout >= 0L) {
+            taskFuture.setExecutionTimeout(executionTimeout);
+        }
+        taskFuture.setPriority(clampPriority(priority));
+        taskFuture.setLogSequence(record.sequence);
+        return taskFuture;
+    }
+
+    /**
+     * Replace the task by an off-heap handle holding its serialized bytes, batch items stay on heap to be drained together.
+     */
+    private void offload(TaskFuture<T> taskFuture, byte[] payload) {
+        if (payload == null || taskFuture.getTask() instanceof BatchItem) {
+            return;
+        }
+        ByteBuffer slot = offHeapArena.store(payload, PAYLOAD_HEADER_SIZE, payload.length - PAYLOAD_HEADER_SIZE);
+        if (slot != null) {
+            SimpleTask<T> task = taskFuture.getTask();
+            // kept on the handle for the rate limits, which are checked before the task is loaded
+            Object rateLimitKey = task instanceof RateLimitedTask ? ((RateLimitedTask<T>) task).rateLimitKey() : null;
+            taskFuture.setTask(new OffHeapTask<>(offHeapArena, taskSerializer, slot, task.getClass(), rateLimitKey));
+        }
+    }
+
+    /**
+     * Submit again the tasks of the write-ahead log not done before last stop.
+     */
+    private void recover() {
+        List<TaskFuture<T>> taskFutures = new ArrayList<>();
+        for (TaskLog.Record record : taskLog.getReplayed()) {
+            try {
+                TaskFuture<T> taskFuture = decode(record);
+                if (offHeapArena != null) {
+                    offload(taskFuture, record.payload);
+                }
+                taskFutures.add(taskFuture);
+            } catch (IOException e) {
+                logger.warn(String.format("Exception happened while recovering task %s from task log, message: %s", record.sequence, e.getMessage()), e);
+                taskLog.appendDone(record.sequence, TaskStatus.ERROR);
+            }
+        }
+        recoveredTasks = new TaskBatch<>(taskFutures);
+        // put blocking whatever the rejection policy, recovered tasks are not dropped
+        int count = putAll(taskFutures);
+        if (taskMetrics != null) {
+            taskMetrics.recordSubmitted(count);
+        }
+        if (count < taskFutures.size()) {
+            logger.warn(String.format("Interrupted while recovering tasks, %s of %s tasks recovered.", count, taskFutures.size()));
+            for (int i = count; i < taskFutures.size(); i++) {
+                // not marked done in the log, recovered again by next start
+                taskFutures.get(i).setTaskStatus(TaskStatus.INTERRUPTED);
+            }
+        }
+    }
+
+    private void reject(TaskFuture<T> taskFuture) {
+        if (taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.REJECTED) && logger.isDebugEnabled()) {
+            logger.debug(String.format("Task rejected, taskId: %s", taskFuture.getTaskId()));
+        }
+        recordOutcome(taskFuture);
+        finish(taskFuture, true);
+    }
+
+    private void recordSubmitted() {
+        if (taskMetrics != null) {
+            taskMetrics.recordSubmitted(1);
+        }
+    }
+
+    /**
+     * Record the final status of the task, once per task.
+     */
+    private void recordOutcome(TaskFuture<T> taskFuture) {
+        if (taskMetrics != null) {
+            taskMetrics.recordOutcome(taskFuture.getTaskStatus());
+        }
+        if (taskLog != null && taskFuture.getLogSequence() != 0L) {
+            taskLog.appendDone(taskFuture.getLogSequence(), taskFuture.getTaskStatus());
+        }
+    }
+
+    /**
+     * Start the task executor.
      *
-     * @param defaultTaskTimeout Global task execution timeout after task has been submitted.
      * @return {@link QueueTaskExecutor}
      */
-    public QueueTaskExecutor<T> defaultTaskTimeout(Integer defaultTaskTimeout) {
-        this.defaultTaskTimeout = defaultTaskTimeout;
+    public QueueTaskExecutor<T> start() {
+        if (shutdown.get()) {
+            return null;
+        }
+        taskTimeoutTimer = new HashedWheelTimer(timerTickDuration, 512, "queue-task-timer");
+        if (taskFuturePoolSize > 0) {
+            taskFuturePool = new RingBufferTaskQueue<>(taskFuturePoolSize, WaitStrategy.PARK);
+        }
+        if (taskMetrics != null) {
+            taskMetrics.bind(this);
+        }
+        if (resultCacheSize > 0) {
+            resultCache = new ResultCache<>(resultCacheSize, resultCacheTtl);
+        }
+        if (offHeapPayloads) {
+            offHeapArena = new OffHeapArena(1024 * 1024, offHeapCapacity);
+        }
+        if (persistentQueue != null) {
+            try {
+                taskLog = new TaskLog(new File(persistentQueue), logSegmentSize);
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Exception happened while opening task log %s, message: %s", persistentQueue, e.getMessage()), e);
+            }
+        }
+        if (workStealing) {
+            workStealingDispatcher = new WorkStealingDispatcher<>(this, taskConcurrenceCount, taskMaxCount);
+            workStealingDispatcher.start();
+            if (taskLog != null) {
+                recover();
+            }
+            return this;
+        }
+        taskFutureBlockingQueue = newTaskQueue();
+        taskExecutionThreadPool = virtualThreads ? newVirtualThreadPool() : Executors.newFixedThreadPool(taskConcurrenceCount);
+        taskLatch = new TaskLatch(taskConcurrenceCount);
+        if (adaptiveConcurrence) {
+            concurrencyLimit = new AdaptiveConcurrencyLimit(taskConcurrenceCount, minConcurrenceCount, maxConcurrenceCount, this::resizeConcurrence);
+            if (concurrencyLimit.getLimit() != taskConcurrenceCount) {
+                resizeConcurrence(concurrencyLimit.getLimit());
+            }
+        }
+        shutdown.set(false);
+        executorThread = new Thread(() -> {
+            while (!shutdown.get()) {
+                try {
+                    taskLatch.acquireInterruptibly();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                final TaskFuture<T> taskFuture;
+                try {
+                    taskFuture = taskFutureBlockingQueue.take();
+                } catch (InterruptedException e) {
+                    taskLatch.release();
+                    break;
+                }
+                if (taskFuture.getTask() instanceof BatchItem && batchSize > 1) {
+                    if (!dispatchBatch(drainBatch(taskFuture))) {
+                        taskLatch.release();
+                    }
+                } else {
+                    if (deferForPermits(taskFuture)) {
+                        taskLatch.release();
+                        releaseGroup(taskFuture);
+                        continue;
+                    }
+                    if (!dispatchTask(taskFuture)) {
+                        taskLatch.release();
+                        releaseGroup(taskFuture);
+                    }
+                }
+            }
+        });
+        executorThread.start();
+        if (taskLog != null) {
+            recover();
+        }
         return this;
     }
 
     /**
-     * Shutdown flag
+     * Hand the task over to the execution thread pool, the latch is released by the execution thread when task finished.
+     *
+     * @return false if the task was not dispatched and the latch should be released by caller
      */
-    private AtomicBoolean shutdown = new AtomicBoolean(false);
+    private boolean dispatchTask(final TaskFuture<T> taskFuture) {
+        if (taskFuture.getTask() == null || !taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.EXECUTING)) {
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+            return false;
+        }
+        HashedWheelTimer.Timeout timeout = null;
+        try {
+            timeout = taskTimeoutTimer.schedule(taskFuture.getTimeoutAction(), executionTimeoutOf(taskFuture), TimeUnit.MILLISECONDS, false);
+            taskFuture.setTimeoutHandle(timeout);
+            // the execution is kept in the task future, so a recycled one does not allocate it again
+            if (taskFuture.getExecution() == null) {
+                taskFuture.setExecution(() -> runDispatched(taskFuture));
+            }
+            taskExecutionThreadPool.execute(taskFuture.getExecution());
+            return true;
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+            return false;
+        }
+    }
+
     /**
-     * Blocking queue for task {@link SimpleTask}
+     * Execution of a task dispatched to the thread pool, releases the latch when finished.
      */
-    private BlockingQueue<TaskFuture<T>> taskFutureBlockingQueue;
+    private void runDispatched(final TaskFuture<T> taskFuture) {
+        boolean retrying = false;
+        try {
+            retrying = executeTask(taskFuture);
+        } finally {
+            boolean cancelled = taskFuture.getTimeoutHandle().cancel();
+            taskLatch.release();
+            releaseGroup(taskFuture);
+            if (retrying) {
+                retry(taskFuture);
+            } else {
+                finish(taskFuture, cancelled);
+            }
+        }
+    }
+
     /**
-     * Executor loop thread
+     * Count the task taken from the queue as no longer executing in its group, in fair scheduling mode.
      */
-    private Thread executorThread;
+    private void releaseGroup(TaskFuture<T> taskFuture) {
+        if (fairTaskQueue != null) {
+            fairTaskQueue.release(taskFuture);
+        }
+    }
+
     /**
-     * Thread pool for task dispatcher.
+     * Run the task in current thread under its timeout, used by worker threads of {@link WorkStealingDispatcher}
+     * and by submitting threads under {@link RejectionPolicy#CALLER_RUNS}.
      */
-    private ExecutorService taskDispatcherThreadPool;
+    void runTask(final TaskFuture<T> taskFuture) {
+        if (deferForPermits(taskFuture)) {
+            return;
+        }
+        if (taskFuture.getTask() == null || !taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.EXECUTING)) {
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+            return;
+        }
+        final HashedWheelTimer.Timeout timeout;
+        try {
+            timeout = taskTimeoutTimer.schedule(taskFuture.getTimeoutAction(), executionTimeoutOf(taskFuture), TimeUnit.MILLISECONDS, false);
+        } catch (IllegalStateException e) {
+            taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+            return;
+        }
+        boolean retrying = false;
+        try {
+            retrying = executeTask(taskFuture);
+        } finally {
+            boolean cancelled = timeout.cancel();
+            if (retrying) {
+                retry(taskFuture);
+            } else {
+                finish(taskFuture, cancelled);
+            }
+        }
+    }
+
     /**
-     * Thread pool for task executing.
+     * Put the task back into the queue after the backoff of the retry policy, the timeout of the failed execution is cancelled already.
      */
-    private ExecutorService taskExecutionThreadPool;
+    private void retry(final TaskFuture<T> taskFuture) {
+        long backoff = retryPolicy.backoff(taskFuture.getAttempts());
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Task retried in %s ms, attempts: %s, taskId: %s", backoff, taskFuture.getAttempts(), taskFuture.getTaskId()));
+        }
+        // the retry waits for permits of the rate limits again
+        taskFuture.setPermitsReserved(false);
+        try {
+            taskTimeoutTimer.schedule(() -> fire(taskFuture, false), backoff, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.INTERRUPTED);
+            recordOutcome(taskFuture);
+            finish(taskFuture, true);
+        }
+    }
+
     /**
-     * Available count of tasks for executing. {@link TaskStatus#EXECUTING}
+     * Reserve permits of the rate limits of the task once, and hand it to its lane if not due now
+     * or tasks of its lane are ahead of it. {@link RateLimitLane}
+     *
+     * @return {@code true} if handed to the lane, it is put back into the queue when due
      */
-    private TaskLatch taskLatch;
+    private boolean deferForPermits(TaskFuture<T> taskFuture) {
+        if (rateLimit == null && classRateLimits.isEmpty() && keyRateLimit == null) {
+            return false;
+        }
+        SimpleTask<T> task = taskFuture.getTask();
+        Class<?> taskClass;
+        Object key;
+        if (task instanceof OffHeapTask) {
+            taskClass = ((OffHeapTask<T>) task).getTaskClass();
+            key = ((OffHeapTask<T>) task).getRateLimitKey();
+        } else {
+            taskClass = task.getClass();
+            key = task instanceof RateLimitedTask ? ((RateLimitedTask<T>) task).rateLimitKey() : null;
+        }
+        RateLimit classRateLimit = classRateLimits.get(taskClass);
+        Object lane = keyRateLimit != null && key != null ? key : classRateLimit != null ? taskClass : ALL_TASKS_LANE;
+        if (taskFuture.isPermitsReserved()) {
+            // put back by its lane, or dispatched before without waiting
+            rateLimitLanes.computeIfPresent(lane, (k, l) -> {
+                l.taken(taskFuture);
+                return l.isEmpty() ? null : l;
+            });
+            return false;
+        }
+        taskFuture.setPermitsReserved(true);
+        long now = System.nanoTime();
+        long delay = 0L;
+        if (rateLimit != null) {
+            delay = rateLimit.reserve(now);
+        }
+        if (classRateLimit != null) {
+            delay = Math.max(delay, classRateLimit.reserve(now));
+        }
+        if (keyRateLimit != null && key != null) {
+            delay = Math.max(delay, keyRateLimits.computeIfAbsent(key, k -> new RateLimit(keyRateLimit, keyRateLimitBurst)).reserve(now));
+            if ((keyReservationCount.incrementAndGet() & 4095) == 0L) {
+                keyRateLimits.values().removeIf(limit -> limit.isIdle(now));
+                for (Object idle : rateLimitLanes.keySet()) {
+                    rateLimitLanes.computeIfPresent(idle, (k, l) -> {
+                        l.prune();
+                        return l.isEmpty() ? null : l;
+                    });
+                }
+            }
+        }
+        final long due = now + delay;
+        // [0] handed to the lane, [1] the only task waiting in the lane
+        boolean[] deferred = new boolean[2];
+        rateLimitLanes.compute(lane, (k, l) -> {
+            if (l != null) {
+                l.prune();
+            }
+            if (due - now <= 0L && (l == null || l.isEmpty())) {
+                return null;
+            }
+            if (l == null) {
+                l = new RateLimitLane<>();
+            }
+            deferred[0] = true;
+            deferred[1] = l.add(taskFuture, due);
+            return l;
+        });
+        if (!deferred[0]) {
+            return false;
+        }
+        deferredCount.incrementAndGet();
+        if (deferred[1]) {
+            releaseLane(lane);
+        }
+        return true;
+    }
 
     /**
-     * Submit task.
-     *
-     * @param task {@link SimpleTask}
-     * @return {@link TaskFuture}
+     * Put the tasks of the lane due back into the queue in order, and wait on the timer for the next one.
      */
-    public TaskFuture<T> submit(SimpleTask<T> task) {
-        TaskFuture<T> taskFuture = new TaskFuture<>(task);
+    private void releaseLane(Object lane) {
+        List<TaskFuture<T>> due = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        TaskFuture<T>[] next = new TaskFuture[1];
+        long now = System.nanoTime();
+        rateLimitLanes.computeIfPresent(lane, (k, l) -> {
+            next[0] = l.pollDue(now, due);
+            return l.isEmpty() ? null : l;
+        });
+        for (TaskFuture<T> taskFuture : due) {
+            releaseDeferred();
+            fire(taskFuture, false);
+        }
+        if (next[0] == null) {
+            return;
+        }
         try {
-            taskFutureBlockingQueue.put(taskFuture);
-        } catch (Exception e) {
-            logger.warn(e.getMessage(), e);
-            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            taskTimeoutTimer.schedule(() -> releaseLane(lane), next[0].getPermitsDue() - now, TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException e) {
+            List<TaskFuture<T>> drained = new ArrayList<>();
+            rateLimitLanes.computeIfPresent(lane, (k, l) -> {
+                l.drain(drained);
+                return l.isEmpty() ? null : l;
+            });
+            for (TaskFuture<T> taskFuture : drained) {
+                releaseDeferred();
+                taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.INTERRUPTED);
+                recordOutcome(taskFuture);
+                finish(taskFuture, true);
+            }
         }
-        return taskFuture;
     }
 
     /**
-     * Submit task.
+     * Hold the submitter back while taskMaxCount tasks wait for rate limit permits, the executor thread is never held.
      *
-     * @param task             {@link SimpleTask}
-     * @param executionTimeout timeout after task executing.
-     * @return {@link TaskFuture}
+     * @return {@code false} if still full when timeout, or the policy does not wait
+     * @throws InterruptedException if interrupted while waiting
      */
-    public TaskFuture<T> submit(SimpleTask<T> task, long executionTimeout) {
-        TaskFuture<T> taskFuture = new TaskFuture<>(task);
-        taskFuture.setExecutionTimeout(executionTimeout);
+    private boolean awaitDeferred(boolean blocking, RejectionPolicy policy) throws InterruptedException {
+        if (!blocking || (policy != RejectionPolicy.BLOCK && policy != RejectionPolicy.BLOCK_WITH_TIMEOUT)) {
+            return false;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(submitTimeout);
+        // counted before checking, so a task released after the check always signals
+        deferredWaiters.incrementAndGet();
+        deferredLock.lock();
         try {
-            taskFutureBlockingQueue.put(taskFuture);
-        } catch (Exception e) {
-            logger.warn(e.getMessage(), e);
-            taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
+            while (deferredCount.get() >= taskMaxCount && !shutdown.get()) {
+                if (policy == RejectionPolicy.BLOCK) {
+                    deferredNotFull.await();
+                } else if (remaining <= 0L) {
+                    return false;
+                } else {
+                    remaining = deferredNotFull.awaitNanos(remaining);
+                }
+            }
+            return true;
+        } finally {
+            deferredLock.unlock();
+            deferredWaiters.decrementAndGet();
         }
-        return taskFuture;
     }
 
     /**
-     * Start the task executor.
-     *
-     * @return {@link QueueTaskExecutor}
+     * Count a task out of the rate limit wait, waking submitters held back if there is room.
      */
-    public QueueTaskExecutor<T> start() {
-        if (shutdown.get()) {
-            return null;
+    private void releaseDeferred() {
+        if (deferredCount.decrementAndGet() < taskMaxCount && deferredWaiters.get() > 0) {
+            signalDeferred();
         }
-        taskFutureBlockingQueue = new LinkedBlockingDeque<>(taskMaxCount);
-        taskExecutionThreadPool = Executors.newFixedThreadPool(taskConcurrenceCount);
-        taskDispatcherThreadPool = Executors.newCachedThreadPool();
-        taskLatch = new TaskLatch(taskConcurrenceCount);
-        shutdown.set(false);
-        executorThread = new Thread(() -> {
-            while (!shutdown.get()) {
-                loopSleep();
-                if (taskLatch.acquire()) {
-                    taskDispatcherThreadPool.submit(() -> {
-                        try {
-                            dispatcherTask();
-                        } catch (Exception e) {
-                            logger.warn(e.getMessage(), e);
-                        } finally {
-                            taskLatch.release();
-                        }
-                    });
+    }
+
+    private void signalDeferred() {
+        deferredLock.lock();
+        try {
+            deferredNotFull.signalAll();
+        } finally {
+            deferredLock.unlock();
+        }
+    }
+
+    private long executionTimeoutOf(TaskFuture<T> taskFuture) {
+        return taskFuture.getExecutionTimeout() == null ? defaultTaskTimeout : taskFuture.getExecutionTimeout();
+    }
+
+    /**
+     * Drain the following items of the same batch task from the queue, waiting at most {@link #batchWaitTime} for more items.
+     * If interrupted while waiting, returns the items drained with the interrupt status set.
+     */
+    private List<TaskFuture<T>> drainBatch(final TaskFuture<T> first) {
+        final BatchTask<?, T> batchTask = ((BatchItem<?, T>) first.getTask()).getBatchTask();
+        List<TaskFuture<T>> batch = new ArrayList<>(Math.min(batchSize, 64));
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(batchWaitTime);
+        try {
+            while (batch.size() < batchSize) {
+                TaskFuture<T> next = taskFutureBlockingQueue.poll(
+                        taskFuture -> taskFuture.getTask() instanceof BatchItem && ((BatchItem<?, T>) taskFuture.getTask()).getBatchTask() == batchTask,
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
                 }
+                batch.add(next);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return batch;
+    }
 
-        });
-        executorThread.start();
-        return this;
+    /**
+     * Hand the batch over to the execution thread pool as one task, the latch is released by the execution thread when batch finished.
+     *
+     * @return false if the batch was not dispatched and the latch should be released by caller
+     */
+    private boolean dispatchBatch(final List<TaskFuture<T>> batch) {
+        final List<TaskFuture<T>> executing = new ArrayList<>(batch.size());
+        for (TaskFuture<T> taskFuture : batch) {
+            if (taskFuture.compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.EXECUTING)) {
+                executing.add(taskFuture);
+            } else {
+                recordOutcome(taskFuture);
+            }
+        }
+        if (executing.isEmpty()) {
+            return false;
+        }
+        Runnable onTimeout = () -> {
+            for (TaskFuture<T> taskFuture : executing) {
+                taskFuture.timeout();
+            }
+        };
+        if (!execute(() -> executeBatch(executing), onTimeout, executionTimeoutOf(executing.get(0)))) {
+            for (TaskFuture<T> taskFuture : executing) {
+                taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.INTERRUPTED);
+                recordOutcome(taskFuture);
+            }
+            return false;
+        }
+        return true;
     }
 
-    private void dispatcherTask() {
-        final TaskFuture<T> taskFuture = taskFutureBlockingQueue.poll();
-        if (taskFuture != null) {
-            final String taskId = taskFuture.getTaskId();
-            final SimpleTask<T> task = taskFuture.getTask();
-            if (taskId != null && task != null) {
-                taskFuture.setTaskStatus(TaskStatus.EXECUTING);
-                Future<T> future = taskExecutionThreadPool.submit(() -> {
-                    T result = null;
-                    int step = 0;
-                    try {
-                        if (task instanceof Task) {
-                            Task<T> tTask = (Task<T>) task;
-                            step = 1;
-                            tTask.before();
-                            step = 2;
-                            result = task.execute();
-                            step = 3;
-                            tTask.after(result);
-                        } else {
-                            result = task.execute();
-                        }
-                    } catch (Exception e) {
-                        switch (step) {
-                            case 1:
-                                logger.warn(String.format("Exception happened while task before operation, message: %s", e.getMessage()), e);
-                                break;
-                            case 2:
-                                logger.warn(String.format("Exception happened while task execution, message: %s", e.getMessage()), e);
-                                break;
-                            case 3:
-                                logger.warn(String.format("Exception happened while task after operation, message: %s", e.getMessage()), e);
-                                break;
-                            default:
-                                logger.warn(e.getMessage(), e);
-                                break;
-                        }
-                    }
-                    return result;
-                });
-                taskFuture.setFuture(future);
-                Long executionTimeout = taskFuture.getExecutionTimeout() == null ? defaultTaskTimeout : taskFuture.getExecutionTimeout();
+    /**
+     * Run the execution in the execution thread pool under a timeout, then release the latch.
+     *
+     * @return false if the timer or thread pool has been stopped
+     */
+    private boolean execute(final Runnable execution, Runnable onTimeout, long executionTimeout) {
+        final HashedWheelTimer.Timeout timeout;
+        try {
+            timeout = taskTimeoutTimer.schedule(onTimeout, executionTimeout, TimeUnit.MILLISECONDS, false);
+        } catch (IllegalStateException e) {
+            return false;
+        }
+        try {
+            taskExecutionThreadPool.execute(() -> {
                 try {
-                    taskFuture.setResult(future.get(executionTimeout, TimeUnit.MILLISECONDS));
-                    taskFuture.setTaskStatus(TaskStatus.COMPLETED);
-                } catch (CancellationException cancelE) {
-                    taskFuture.setTaskStatus(TaskStatus.CANCELED);
-                } catch (InterruptedException interruptE) {
-                    taskFuture.setTaskStatus(TaskStatus.INTERRUPTED);
-                } catch (ExecutionException executionE) {
-                    taskFuture.setTaskStatus(TaskStatus.ERROR);
-                } catch (TimeoutException timeoutE) {
-                    taskFuture.setTaskStatus(TaskStatus.TIMEOUT);
+                    execution.run();
+                } finally {
+                    timeout.cancel();
+                    taskLatch.release();
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            timeout.cancel();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run the task life cycle in current thread, and write status and result into the task future.
+     *
+     * @return true if the execution threw and the task turned {@link TaskStatus#WAITING} to be retried
+     */
+    private boolean executeTask(final TaskFuture<T> taskFuture) {
+        SimpleTask<T> task = taskFuture.getTask();
+        if (!taskFuture.setRunner(Thread.currentThread())) {
+            recordOutcome(taskFuture);
+            return false;
+        }
+        int attempts = taskFuture.incrementAttempts();
+        boolean retrying = false;
+        T result = null;
+        int step = 0;
+        long startTime = System.nanoTime();
+        if (taskMetrics != null) {
+            taskMetrics.recordQueueWait(startTime - taskFuture.getEnqueueTime());
+        }
+        try {
+            if (task instanceof OffHeapTask) {
+                task = ((OffHeapTask<T>) task).load();
+                taskFuture.setTask(task);
+            }
+            if (task instanceof Task) {
+                Task<T> tTask = (Task<T>) task;
+                step = 1;
+                tTask.before();
+                step = 2;
+                result = task.execute();
+                step = 3;
+                tTask.after(result);
+            } else {
+                step = 2;
+                result = task.execute();
+            }
+            taskFuture.complete(result);
+        } catch (Throwable e) {
+            // errors are caught too, otherwise nothing moves the task future out of executing
+            switch (step) {
+                case 1:
+                    logger.warn(String.format("Exception happened while task before operation, message: %s", e.getMessage()), e);
+                    break;
+                case 2:
+                    logger.warn(String.format("Exception happened while task execution, message: %s", e.getMessage()), e);
+                    break;
+                case 3:
+                    logger.warn(String.format("Exception happened while task after operation, message: %s", e.getMessage()), e);
+                    break;
+                default:
+                    logger.warn(e.getMessage(), e);
+                    break;
+            }
+            taskFuture.setCause(e);
+            retrying = retryPolicy != null && e instanceof Exception && retryPolicy.shouldRetry(e, attempts)
+                    && taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.WAITING);
+            if (!retrying) {
+                taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.ERROR);
+            }
+        } finally {
+            taskFuture.clearRunner();
+            long executionNanos = System.nanoTime() - startTime;
+            if (concurrencyLimit != null) {
+                concurrencyLimit.onSample(executionNanos, startTime - taskFuture.getEnqueueTime());
+            }
+            if (taskMetrics != null) {
+                taskMetrics.recordExecution(executionNanos);
+            }
+            if (!retrying) {
+                recordOutcome(taskFuture);
             }
         }
+        return retrying;
     }
 
     /**
-     * Stop the task executor.
+     * Run the items of a batch task in one invocation in current thread, and fan the results out to the task futures.
      */
-    public void stop() {
-        if (!shutdown.get()) {
+    @SuppressWarnings("unchecked")
+    private <I> void executeBatch(final List<TaskFuture<T>> batch) {
+        BatchTask<I, T> batchTask = null;
+        List<TaskFuture<T>> running = new ArrayList<>(batch.size());
+        List<I> items = new ArrayList<>(batch.size());
+        long startTime = System.nanoTime();
+        for (TaskFuture<T> taskFuture : batch) {
+            if (taskFuture.setRunner(Thread.currentThread())) {
+                BatchItem<I, T> batchItem = (BatchItem<I, T>) taskFuture.getTask();
+                batchTask = batchItem.getBatchTask();
+                running.add(taskFuture);
+                items.add(batchItem.getItem());
+                if (taskMetrics != null) {
+                    taskMetrics.recordQueueWait(startTime - taskFuture.getEnqueueTime());
+                }
+            } else {
+                recordOutcome(taskFuture);
+            }
+        }
+        if (running.isEmpty()) {
             return;
         }
-        shutdown.set(true);
-        executorThread.interrupt();
+        try {
+            List<T> results = batchTask.execute(items);
+            if (results == null || results.size() != items.size()) {
+                throw new IllegalStateException(String.format("Batch task returned %s results for %s items",
+                        results == null ? null : results.size(), items.size()));
+            }
+            for (int i = 0; i < running.size(); i++) {
+                running.get(i).complete(results.get(i));
+            }
+        } catch (Throwable e) {
+            logger.warn(String.format("Exception happened while batch task execution, message: %s", e.getMessage()), e);
+            for (TaskFuture<T> taskFuture : running) {
+                taskFuture.setCause(e);
+                taskFuture.compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.ERROR);
+            }
+        } finally {
+            long executionNanos = System.nanoTime() - startTime;
+            for (TaskFuture<T> taskFuture : running) {
+                taskFuture.clearRunner();
+                if (taskMetrics != null) {
+                    // every item takes the time of the whole invocation
+                    taskMetrics.recordExecution(executionNanos);
+                }
+                recordOutcome(taskFuture);
+            }
+        }
+    }
+
+    private TaskQueue<T> newTaskQueue() {
+        fairTaskQueue = null;
+        if (taskQueue != null) {
+            return taskQueue;
+        }
+        if (fairScheduling) {
+            fairTaskQueue = new FairTaskQueue<>(taskMaxCount, groupMaxCount > 0 ? groupMaxCount : taskMaxCount,
+                    groupWeights, groupMinConcurrences, groupMaxConcurrences);
+            return fairTaskQueue;
+        }
+        if (priorityLevels > 1) {
+            return new PriorityTaskQueue<>(taskMaxCount, priorityLevels, priorityAgingTime);
+        }
+        if (waitStrategy != null) {
+            return new RingBufferTaskQueue<>(taskMaxCount, waitStrategy);
+        }
+        return new BlockingTaskQueue<>(taskMaxCount);
     }
 
-    private static void loopSleep() {
+    private ExecutorService newVirtualThreadPool() {
         try {
-            TimeUnit.MILLISECONDS.sleep(10);
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
         } catch (Exception e) {
-            logger.warn(e.getMessage());
+            logger.warn(String.format("Virtual threads are not supported by current JVM %s, fall back to platform thread pool.", System.getProperty("java.version")));
+            return Executors.newFixedThreadPool(taskConcurrenceCount);
+        }
+    }
+
+    /**
+     * Resize the thread pool and the task latch together, under the lock of the task latch,
+     * so a resize from the adaptive limit and one from the user could not interleave.
+     */
+    private void resizeConcurrence(int count) {
+        synchronized (taskLatch) {
+            if (taskExecutionThreadPool instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) taskExecutionThreadPool;
+                if (count > pool.getMaximumPoolSize()) {
+                    pool.setMaximumPoolSize(count);
+                    pool.setCorePoolSize(count);
+                } else {
+                    pool.setCorePoolSize(count);
+                    pool.setMaximumPoolSize(count);
+                }
+            }
+            taskLatch.resize(count);
+        }
+    }
+
+    /**
+     * Stop the task executor.
+     */
+    public void stop() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        if (workStealingDispatcher != null) {
+            workStealingDispatcher.stop();
+        } else {
+            executorThread.interrupt();
+            taskExecutionThreadPool.shutdown();
+        }
+        taskTimeoutTimer.stop();
+        signalDeferred();
+        if (taskLog != null) {
+            // tasks still executing are not marked done, they are recovered by next start
+            taskLog.close();
         }
     }
 }
@@ -0,0 +1,95 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limit by the generic cell rate algorithm (GCRA), see {@link QueueTaskExecutor#rateLimit(RateLimit)}.
+ * <pre>
+ *  Equivalent to a token bucket of {@code burst} tokens refilled at {@code permitsPerSecond},
+ *  but kept as one timestamp, the theoretical arrival time of the next permit, updated by CAS.
+ *  A burst of 1 spaces permits evenly, a larger burst lets that many permits pass at once after idling.
+ *  Permits are reserved, a task denied now is given the time its permit is due, and keeps it.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/19 01:00.
+ */
+public class RateLimit {
+    private final double permitsPerSecond;
+    private final int burst;
+    /**
+     * Emission interval, unit: ns.
+     */
+    private final long interval;
+    /**
+     * Tolerance of arriving early, unit: ns.
+     */
+    private final long tolerance;
+    /**
+     * Theoretical arrival time, unit: ns, {@link System#nanoTime()}
+     */
+    private final AtomicLong arrivalTime;
+
+    /**
+     * @param permitsPerSecond permits per second
+     * @param burst            count of permits that could pass at once
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException(String.format("Invalid rate limit, permitsPerSecond: %s, burst: %s", permitsPerSecond, burst));
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.tolerance = interval * (burst - 1);
+        this.arrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserve a permit.
+     *
+     * @param now current time, unit: ns, {@link System#nanoTime()}
+     * @return delay until the permit is due, unit: ns, 0 if due now
+     */
+    long reserve(long now) {
+        while (true) {
+            long current = arrivalTime.get();
+            long due = Math.max(now, current - tolerance);
+            if (arrivalTime.compareAndSet(current, Math.max(current, due) + interval)) {
+                return due - now;
+            }
+        }
+    }
+
+    /**
+     * Try to take a permit due now, without reserving one for later.
+     *
+     * @return {@code true} if taken
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = arrivalTime.get();
+            if (now < current - tolerance) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(current, Math.max(current, now) + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the whole burst is available, the limit is the same as a new one.
+     */
+    boolean isIdle(long now) {
+        return arrivalTime.get() - now <= 0L;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Tasks of a rate limit key, task class or of all tasks, waiting for their permits in dispatch order,
+ * see {@link QueueTaskExecutor#rateLimit(RateLimit)}. Guarded by the map entry of the lane.
+ * <pre>
+ *  A task is due no earlier than the one ahead of it, and is put back into the queue when due.
+ *  Tasks put back are kept until taken from the queue, so a task of the lane taken meanwhile waits behind them.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/19 03:10.
+ */
+class RateLimitLane<T> {
+    private final ArrayDeque<TaskFuture<T>> waiting = new ArrayDeque<>(4);
+    private final ArrayDeque<TaskFuture<T>> fired = new ArrayDeque<>(4);
+
+    /**
+     * Add the task behind the others of the lane, due no earlier than the last one.
+     *
+     * @param due time the permits of the task are due, unit: ns, {@link System#nanoTime()}
+     * @return {@code true} if it is the only task waiting, the timer of the lane should be scheduled
+     */
+    boolean add(TaskFuture<T> taskFuture, long due) {
+        TaskFuture<T> last = waiting.isEmpty() ? fired.peekLast() : waiting.peekLast();
+        taskFuture.setPermitsDue(last == null || due - last.getPermitsDue() > 0L ? due : last.getPermitsDue());
+        waiting.addLast(taskFuture);
+        return waiting.size() == 1;
+    }
+
+    /**
+     * Move the tasks due from waiting to fired.
+     *
+     * @param now current time, unit: ns, {@link System#nanoTime()}
+     * @param due tasks due, to be put back into the queue, tasks done meanwhile included but not kept as fired
+     * @return the next task waiting, null if none
+     */
+    TaskFuture<T> pollDue(long now, List<TaskFuture<T>> due) {
+        TaskFuture<T> head;
+        while ((head = waiting.peekFirst()) != null && head.getPermitsDue() - now <= 0L) {
+            waiting.pollFirst();
+            due.add(head);
+            if (!head.isDone()) {
+                fired.addLast(head);
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Remove all the tasks waiting.
+     *
+     * @param drained tasks waiting
+     */
+    void drain(List<TaskFuture<T>> drained) {
+        drained.addAll(waiting);
+        waiting.clear();
+    }
+
+    /**
+     * Remove the task put back, now taken from the queue.
+     */
+    void taken(TaskFuture<T> taskFuture) {
+        if (fired.peekFirst() == taskFuture) {
+            fired.pollFirst();
+        } else {
+            fired.remove(taskFuture);
+        }
+        prune();
+    }
+
+    /**
+     * Remove tasks put back but done without being taken, cancelled or dropped from the queue.
+     */
+    void prune() {
+        while (!fired.isEmpty() && fired.peekFirst().isDone()) {
+            fired.pollFirst();
+        }
+    }
+
+    boolean isEmpty() {
+        return waiting.isEmpty() && fired.isEmpty();
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * Task limited by the rate limit of its key, see {@link QueueTaskExecutor#keyRateLimit(Double, Integer)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/19 01:05.
+ */
+public interface RateLimitedTask<T> extends SimpleTask<T> {
+    /**
+     * Key choosing the rate limit, such as the third-party API or account called, compared by {@link Object#equals(Object)}.
+     *
+     * @return rate limit key, null for not limited by key
+     */
+    Object rateLimitKey();
+}
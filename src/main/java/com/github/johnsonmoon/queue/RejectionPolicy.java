@@ -0,0 +1,35 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * What submitting does when the queue is full, see {@link QueueTaskExecutor#rejectionPolicy(RejectionPolicy)}.
+ * <p>
+ * Tasks rejected or dropped turn {@link TaskStatus#REJECTED}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 17:10.
+ */
+public enum RejectionPolicy {
+    /**
+     * Block until there is room in the queue.
+     */
+    BLOCK,
+    /**
+     * Block up to the submit timeout, then reject the task. {@link QueueTaskExecutor#submitTimeout(Integer)}
+     */
+    BLOCK_WITH_TIMEOUT,
+    /**
+     * Reject the task at once.
+     */
+    FAIL_FAST,
+    /**
+     * Execute the task in the submitting thread, which slows the submitter down.
+     */
+    CALLER_RUNS,
+    /**
+     * Drop the task waiting the longest to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * Drop the latest task of the lowest priority lower than the submitted one, reject the submitted one if there is none.
+     */
+    DROP_LOWEST_PRIORITY
+}
@@ -0,0 +1,124 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache of task futures of {@link CacheableTask}s by cache key, see {@link QueueTaskExecutor#resultCacheSize(Integer)}.
+ * <pre>
+ *  A task future is cached from submitting, so duplicates submitted while it is in flight share it (single flight),
+ *  and duplicates submitted after it completed get it done with the cached result, until the TTL passed.
+ *  Tasks not {@link TaskStatus#COMPLETED} are removed when done, the next duplicate executes again.
+ *  Entries are evicted least recently used first when the size is exceeded.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/19 00:25.
+ */
+public class ResultCache<T> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, Entry<T>> entries;
+    private long hitCount = 0L;
+    private long missCount = 0L;
+    private long evictionCount = 0L;
+
+    /**
+     * @param maxSize max count of entries
+     * @param ttl     time a result is kept after completed, unit: ms
+     */
+    ResultCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Get the task future of the key, or cache the one created by the factory.
+     *
+     * @return the cached task future, or the created one
+     */
+    synchronized TaskFuture<T> computeIfAbsent(Object key, Function<Object, TaskFuture<T>> factory) {
+        Entry<T> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expireTime == 0L || entry.expireTime - System.nanoTime() > 0L) {
+                hitCount++;
+                return entry.taskFuture;
+            }
+            entries.remove(key);
+            evictionCount++;
+        }
+        missCount++;
+        TaskFuture<T> taskFuture = factory.apply(key);
+        entries.put(key, new Entry<>(taskFuture));
+        if (entries.size() > maxSize) {
+            Iterator<Map.Entry<Object, Entry<T>>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+        return taskFuture;
+    }
+
+    /**
+     * Start the TTL of the completed task future, or remove it if not completed.
+     */
+    synchronized void onDone(Object key, TaskFuture<T> taskFuture, TaskStatus taskStatus) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null || entry.taskFuture != taskFuture) {
+            return;
+        }
+        if (taskStatus == TaskStatus.COMPLETED && ttlNanos > 0L) {
+            // 0 marks in flight
+            entry.expireTime = (System.nanoTime() + ttlNanos) | 1L;
+        } else {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Get count of submits served by a cached or in flight task future.
+     *
+     * @return hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get count of submits executing the task.
+     *
+     * @return miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get count of entries evicted by size or expired by TTL.
+     *
+     * @return eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get count of entries, including expired ones not evicted yet.
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry<T> {
+        private final TaskFuture<T> taskFuture;
+        private long expireTime = 0L;
+
+        private Entry(TaskFuture<T> taskFuture) {
+            this.taskFuture = taskFuture;
+        }
+    }
+}
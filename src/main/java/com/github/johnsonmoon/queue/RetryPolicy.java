@@ -0,0 +1,134 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Policy of retrying tasks whose execution threw, see {@link QueueTaskExecutor#retryPolicy(RetryPolicy)}.
+ * <pre>
+ *  A retried task keeps its {@link TaskFuture}, turns {@link TaskStatus#WAITING} again and is put back into the queue
+ *  by the timer after the backoff, no thread sleeps for it. The backoff of attempt n is
+ *  initialBackoff * multiplier^(n-1), at most maxBackoff, reduced by a random part of up to jitter of it,
+ *  so tasks failed together do not retry together.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/19 01:40.
+ */
+public class RetryPolicy {
+    private Integer maxAttempts = 3;
+    private Integer initialBackoff = 100;
+    private Integer maxBackoff = 10_000;
+    private Double multiplier = 2D;
+    private Double jitter = 0.5D;
+    private Predicate<Throwable> retryOn = cause -> true;
+
+    /**
+     * Set max count of executions of a task, including the first one.
+     *
+     * <pre>
+     *  Default 3.
+     * </pre>
+     *
+     * @param maxAttempts max count of executions
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy maxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Set backoff before the first retry.
+     *
+     * <pre>
+     *  Default 100, unit: ms
+     * </pre>
+     *
+     * @param initialBackoff backoff before the first retry
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy initialBackoff(Integer initialBackoff) {
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * Set max backoff before a retry.
+     *
+     * <pre>
+     *  Default 10000, unit: ms
+     * </pre>
+     *
+     * @param maxBackoff max backoff
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy maxBackoff(Integer maxBackoff) {
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Set multiplier of the backoff after each retry.
+     *
+     * <pre>
+     *  Default 2.
+     * </pre>
+     *
+     * @param multiplier multiplier of the backoff
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy multiplier(Double multiplier) {
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * Set max fraction of the backoff taken off randomly.
+     *
+     * <pre>
+     *  Default 0.5, means a backoff of 100 ms is between 50 and 100 ms. 0 for no jitter.
+     * </pre>
+     *
+     * @param jitter fraction of the backoff, 0 to 1
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy jitter(Double jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Set which exceptions are retried.
+     *
+     * <pre>
+     *  Default all. {@link Error}s are never retried, the task turns {@link TaskStatus#ERROR}.
+     * </pre>
+     *
+     * @param retryOn predicate of the exception thrown by the task
+     * @return {@link RetryPolicy}
+     */
+    public RetryPolicy retryOn(Predicate<Throwable> retryOn) {
+        this.retryOn = retryOn;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the task should be executed again.
+     *
+     * @param cause    exception thrown by the task
+     * @param attempts count of executions so far
+     */
+    boolean shouldRetry(Throwable cause, int attempts) {
+        return attempts < maxAttempts && retryOn.test(cause);
+    }
+
+    /**
+     * Get backoff before the next execution.
+     *
+     * @param attempts count of executions so far
+     * @return backoff, unit: ms
+     */
+    long backoff(int attempts) {
+        double backoff = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, attempts - 1));
+        return (long) (backoff * (1D - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
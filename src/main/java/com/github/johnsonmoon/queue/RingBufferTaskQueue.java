@@ -0,0 +1,254 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Lock-free bounded MPMC {@link TaskQueue} on a preallocated ring buffer.
+ * <pre>
+ *  Every slot carries a sequence telling whether it is free for the producer of a position
+ *  or filled for the consumer of it, so producers and consumers only CAS their own position counter.
+ *  Nothing is allocated per task future, and the two counters are padded to separate cache lines.
+ *  The capacity is rounded up to a power of two.
+ *  Threads wait on a full or empty buffer by the {@link WaitStrategy}.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 16:35.
+ */
+class RingBufferTaskQueue<T> implements TaskQueue<T> {
+    private final int mask;
+    private final AtomicReferenceArray<TaskFuture<T>> buffer;
+    private final AtomicLongArray sequences;
+    private final PaddedAtomicLong enqueuePosition = new PaddedAtomicLong();
+    private final PaddedAtomicLong dequeuePosition = new PaddedAtomicLong();
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Lock and conditions only used by {@link WaitStrategy#PARK}, producers and consumers signal only when the other side is parked.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger takeWaiters = new AtomicInteger(0);
+    private final AtomicInteger putWaiters = new AtomicInteger(0);
+
+    RingBufferTaskQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // a single slot could not tell a filled slot from a free one of the next lap
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+    }
+
+    /**
+     * Put the task future if there is a free slot.
+     *
+     * @param taskFuture task future
+     * @return {@code true} if put, {@code false} if the queue is full
+     */
+    boolean offer(TaskFuture<T> taskFuture) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0L) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, taskFuture);
+                    // a volatile write, so a consumer parking after this either sees the slot or is seen in takeWaiters
+                    sequences.set(index, position + 1);
+                    if (takeWaiters.get() > 0) {
+                        signal(notEmpty);
+                    }
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0L) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Take the next task future if it matches the predicate.
+     *
+     * @param predicate predicate the next task future should match, null for any
+     * @return next task future, null if the queue is empty or the next one does not match
+     */
+    TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate) {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0L) {
+                // the slot is not reused before its position is dequeued, so it is safe to test before the CAS
+                TaskFuture<T> taskFuture = buffer.get(index);
+                if (predicate != null && !predicate.test(taskFuture)) {
+                    return null;
+                }
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    if (putWaiters.get() > 0) {
+                        signal(notFull);
+                    }
+                    return taskFuture;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0L) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    @Override
+    public void put(TaskFuture<T> taskFuture) throws InterruptedException {
+        while (!offer(taskFuture)) {
+            idle(notFull, putWaiters, this::hasFreeSlot, 0L);
+        }
+    }
+
+    @Override
+    public boolean offer(TaskFuture<T> taskFuture, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(taskFuture)) {
+            if (deadline - System.nanoTime() <= 0L) {
+                return false;
+            }
+            idle(notFull, putWaiters, this::hasFreeSlot, deadline);
+        }
+        return true;
+    }
+
+    @Override
+    public int putAll(List<TaskFuture<T>> taskFutures) {
+        int count = 0;
+        try {
+            for (TaskFuture<T> taskFuture : taskFutures) {
+                put(taskFuture);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return count;
+    }
+
+    @Override
+    public TaskFuture<T> take() throws InterruptedException {
+        TaskFuture<T> taskFuture;
+        while ((taskFuture = poll(null)) == null) {
+            idle(notEmpty, takeWaiters, this::hasFilledSlot, 0L);
+        }
+        return taskFuture;
+    }
+
+    @Override
+    public TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!hasFilledSlot()) {
+            if (deadline - System.nanoTime() <= 0L) {
+                return null;
+            }
+            idle(notEmpty, takeWaiters, this::hasFilledSlot, deadline);
+        }
+        return poll(predicate);
+    }
+
+    @Override
+    public TaskFuture<T> pollOldest() {
+        return poll(null);
+    }
+
+    @Override
+    public int size() {
+        // read the consumer position first, so the size is never negative
+        long dequeue = dequeuePosition.get();
+        long enqueue = enqueuePosition.get();
+        return (int) Math.max(0L, Math.min(enqueue - dequeue, mask + 1L));
+    }
+
+    private boolean hasFreeSlot() {
+        long position = enqueuePosition.get();
+        return sequences.get((int) (position & mask)) - position >= 0L;
+    }
+
+    private boolean hasFilledSlot() {
+        long position = dequeuePosition.get();
+        return sequences.get((int) (position & mask)) - (position + 1) >= 0L;
+    }
+
+    /**
+     * Wait once by the wait strategy, the caller re-checks the buffer after returning.
+     *
+     * @param condition condition to park on
+     * @param waiters   count of threads parked on the condition
+     * @param ready     whether the buffer is ready for the caller
+     * @param deadline  deadline in {@link System#nanoTime()}, 0 for no deadline
+     * @throws InterruptedException if interrupted
+     */
+    private void idle(Condition condition, AtomicInteger waiters, BooleanSupplier ready, long deadline) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                waiters.incrementAndGet();
+                try {
+                    lock.lockInterruptibly();
+                    try {
+                        if (!ready.getAsBoolean()) {
+                            if (deadline == 0L) {
+                                condition.await();
+                            } else {
+                                condition.awaitNanos(deadline - System.nanoTime());
+                            }
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } finally {
+                    waiters.decrementAndGet();
+                }
+        }
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counter padded after the value, two of them allocated together do not share a cache line.
+     */
+    @SuppressWarnings("unused")
+    private static class PaddedAtomicLong extends AtomicLong {
+        private volatile long p1, p2, p3, p4, p5, p6, p7 = 7L;
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle of a periodic task, see {@link QueueTaskExecutor#scheduleAtFixedRate(SimpleTask, long, long)}
+ * and {@link QueueTaskExecutor#scheduleWithFixedDelay(SimpleTask, long, long)}.
+ * <pre>
+ *  Every firing submits the task as a new {@link TaskFuture} into the queue of the executor,
+ *  so firings count against the queue capacity and the concurrence count like other tasks.
+ *  Firings go on after a firing failed or timed out, until cancelled or the executor stopped.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 22:40.
+ */
+public class ScheduledTask<T> {
+    private final QueueTaskExecutor<T> executor;
+    private final SimpleTask<T> task;
+    private final long periodNanos;
+    private final boolean fixedRate;
+    private final long firstFireTime;
+    private final AtomicLong fireCount = new AtomicLong(0L);
+    private final AtomicLong skipCount = new AtomicLong(0L);
+    /**
+     * Count of periods passed, only touched by the timer thread.
+     */
+    private long periods = 0L;
+    private volatile boolean cancelled = false;
+    private volatile HashedWheelTimer.Timeout timeout;
+    private volatile TaskFuture<T> lastTaskFuture;
+
+    ScheduledTask(QueueTaskExecutor<T> executor, SimpleTask<T> task, long initialDelay, long period, boolean fixedRate) {
+        this.executor = executor;
+        this.task = task;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+        this.fixedRate = fixedRate;
+        this.firstFireTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelay);
+    }
+
+    ScheduledTask<T> start() {
+        scheduleNext(firstFireTime - System.nanoTime());
+        return this;
+    }
+
+    private void scheduleNext(long delayNanos) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            // no task future is waiting for the next firing, nothing to fire when stopped
+            timeout = executor.getTimeoutTimer().schedule(this::fire, delayNanos, TimeUnit.NANOSECONDS, false);
+        } catch (IllegalStateException e) {
+            // executor stopped
+            cancelled = true;
+        }
+    }
+
+    private void fire() {
+        if (cancelled) {
+            return;
+        }
+        if (fixedRate) {
+            // the next firing is aligned to the first one, periods missed by a late tick are skipped
+            long now = System.nanoTime();
+            periods = Math.max(periods + 1, (now - firstFireTime) / periodNanos + 1);
+            scheduleNext(firstFireTime + periods * periodNanos - now);
+            TaskFuture<T> last = lastTaskFuture;
+            if (last != null && !last.isDone()) {
+                // executions of one schedule never overlap
+                skipCount.incrementAndGet();
+                return;
+            }
+        }
+        TaskFuture<T> taskFuture = executor.newTaskFuture(task);
+        lastTaskFuture = taskFuture;
+        fireCount.incrementAndGet();
+        if (!fixedRate) {
+            taskFuture.whenComplete((result, taskStatus) -> scheduleNext(periodNanos));
+        }
+        executor.fire(taskFuture);
+    }
+
+    /**
+     * Cancel later firings, a firing already submitted is not cancelled, see {@link #getLastTaskFuture()}.
+     *
+     * @return false if cancelled already
+     */
+    public boolean cancel() {
+        if (cancelled) {
+            return false;
+        }
+        cancelled = true;
+        HashedWheelTimer.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if cancelled, or the executor stopped.
+     *
+     * @return whether cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the task future of the latest firing.
+     *
+     * @return {@link TaskFuture}, null before the first firing
+     */
+    public TaskFuture<T> getLastTaskFuture() {
+        return lastTaskFuture;
+    }
+
+    /**
+     * Get count of firings submitted.
+     *
+     * @return fire count
+     */
+    public long getFireCount() {
+        return fireCount.get();
+    }
+
+    /**
+     * Get count of fixed rate firings skipped because the previous firing was still waiting or executing.
+     *
+     * @return skip count
+     */
+    public long getSkipCount() {
+        return skipCount.get();
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Handle of tasks submitted together by {@link QueueTaskExecutor#submitAll(java.util.Collection)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 13:04.
+ */
+public class TaskBatch<T> {
+    private final List<TaskFuture<T>> taskFutures;
+    /**
+     * Task futures in the order they turned done.
+     */
+    private final AtomicReferenceArray<TaskFuture<T>> doneTaskFutures;
+    private final AtomicInteger doneCount = new AtomicInteger(0);
+    private final AtomicInteger waiterCount = new AtomicInteger(0);
+
+    TaskBatch(List<TaskFuture<T>> taskFutures) {
+        this.taskFutures = Collections.unmodifiableList(taskFutures);
+        this.doneTaskFutures = new AtomicReferenceArray<>(taskFutures.size());
+        for (TaskFuture<T> taskFuture : taskFutures) {
+            taskFuture.whenComplete((result, taskStatus) -> onDone(taskFuture));
+        }
+    }
+
+    private void onDone(TaskFuture<T> taskFuture) {
+        doneTaskFutures.set(doneCount.getAndIncrement(), taskFuture);
+        if (waiterCount.get() > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Get task futures of the batch, in submitted order.
+     *
+     * @return task futures
+     */
+    public List<TaskFuture<T>> getTaskFutures() {
+        return taskFutures;
+    }
+
+    /**
+     * Get count of tasks done. {@link TaskFuture#isDone()}
+     *
+     * @return done count
+     */
+    public int getDoneCount() {
+        return doneCount.get();
+    }
+
+    /**
+     * Wait util all tasks are done.
+     *
+     * @return exit values of the tasks in submitted order, null for tasks not {@link TaskStatus#COMPLETED}
+     */
+    public List<T> waitForAll() {
+        awaitDone(taskFutures.size(), false, 0L);
+        List<T> results = new ArrayList<>(taskFutures.size());
+        for (TaskFuture<T> taskFuture : taskFutures) {
+            results.add(taskFuture.exitValue());
+        }
+        return results;
+    }
+
+    /**
+     * Wait util all tasks are done or timeout. Unlike {@link TaskFuture#waitFor(int)}, tasks are not cancelled when timeout.
+     *
+     * @param timeout the maximum time to wait, unit: ms
+     * @return {@code true} if all tasks are done
+     */
+    public boolean waitForAll(int timeout) {
+        return awaitDone(taskFutures.size(), true, TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    /**
+     * Wait util any task is done.
+     *
+     * @return the first task future done, null if the batch is empty
+     */
+    public TaskFuture<T> waitForAny() {
+        List<TaskFuture<T>> done = waitForFirst(1);
+        return done.isEmpty() ? null : done.get(0);
+    }
+
+    /**
+     * Wait util the first {@code count} tasks are done.
+     *
+     * @param count count of tasks to wait for, at most size of the batch
+     * @return the first task futures done, in the order they turned done
+     */
+    public List<TaskFuture<T>> waitForFirst(int count) {
+        int target = Math.min(count, taskFutures.size());
+        awaitDone(target, false, 0L);
+        return firstDone(target);
+    }
+
+    /**
+     * Wait util the first {@code count} tasks are done or timeout.
+     *
+     * @param count   count of tasks to wait for, at most size of the batch
+     * @param timeout the maximum time to wait, unit: ms
+     * @return the task futures done when returning, in the order they turned done, fewer than count if timeout
+     */
+    public List<TaskFuture<T>> waitForFirst(int count, int timeout) {
+        int target = Math.min(count, taskFutures.size());
+        awaitDone(target, true, TimeUnit.MILLISECONDS.toNanos(timeout));
+        return firstDone(Math.min(target, doneCount.get()));
+    }
+
+    private List<TaskFuture<T>> firstDone(int count) {
+        List<TaskFuture<T>> done = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TaskFuture<T> taskFuture;
+            // the index is claimed before the slot is written, spin until it is visible
+            while ((taskFuture = doneTaskFutures.get(i)) == null) {
+                Thread.yield();
+            }
+            done.add(taskFuture);
+        }
+        return done;
+    }
+
+    private boolean awaitDone(int count, boolean timed, long nanos) {
+        if (doneCount.get() >= count) {
+            return true;
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        waiterCount.incrementAndGet();
+        try {
+            synchronized (this) {
+                while (doneCount.get() < count) {
+                    if (timed) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0L) {
+                            return false;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } else {
+                        wait();
+                    }
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return doneCount.get() >= count;
+        } finally {
+            waiterCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DependentTask} waiting for its upstream task futures, counted down by their completions.
+ * <pre>
+ *  Settled once, either ready when the last upstream completed, or failed when any upstream turned
+ *  another final status than {@link TaskStatus#COMPLETED}.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 23:50.
+ */
+class TaskDependency<T> implements SimpleTask<T> {
+    private final List<TaskFuture<T>> upstreams;
+    private final DependentTask<T> task;
+    private final AtomicInteger remaining;
+    private final AtomicBoolean settled = new AtomicBoolean(false);
+
+    TaskDependency(List<TaskFuture<T>> upstreams, DependentTask<T> task) {
+        this.upstreams = upstreams;
+        this.task = task;
+        this.remaining = new AtomicInteger(upstreams.size());
+    }
+
+    List<TaskFuture<T>> getUpstreams() {
+        return upstreams;
+    }
+
+    /**
+     * Count down a completed upstream.
+     *
+     * @return true if it was the last one and the dependency is settled ready
+     */
+    boolean onCompleted() {
+        return remaining.decrementAndGet() == 0 && settled.compareAndSet(false, true);
+    }
+
+    /**
+     * Settle the dependency failed by an upstream.
+     *
+     * @return true if settled by this call
+     */
+    boolean onFailed() {
+        return settled.compareAndSet(false, true);
+    }
+
+    @Override
+    public T execute() {
+        List<T> results = new ArrayList<>(upstreams.size());
+        for (TaskFuture<T> upstream : upstreams) {
+            results.add(upstream.exitValue());
+        }
+        return task.execute(results);
+    }
+}
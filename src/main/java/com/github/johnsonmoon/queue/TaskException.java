@@ -0,0 +1,35 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * Thrown when a task did not turn {@link TaskStatus#COMPLETED}, caused by the exception of its last failed execution if any.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 11:58.
+ */
+public class TaskException extends RuntimeException {
+    private final String taskId;
+    private final TaskStatus taskStatus;
+
+    TaskException(TaskFuture<?> taskFuture) {
+        super(String.format("Task %s was not completed, status: %s", taskFuture.getTaskId(), taskFuture.getTaskStatus()), taskFuture.getCause());
+        this.taskId = taskFuture.getTaskId();
+        this.taskStatus = taskFuture.getTaskStatus();
+    }
+
+    /**
+     * Get id of the task.
+     *
+     * @return id of the task
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Get final status of the task.
+     *
+     * @return {@link TaskStatus}
+     */
+    public TaskStatus getTaskStatus() {
+        return taskStatus;
+    }
+}
@@ -4,44 +4,289 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.UUID;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Create by johnsonmoon at 2018/11/22 17:54.
  */
 public class TaskFuture<T> {
     private static Logger logger = LoggerFactory.getLogger(TaskFuture.class);
-    private AtomicBoolean interrupt = new AtomicBoolean(false);
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TaskFuture, TaskStatus> TASK_STATUS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TaskFuture.class, TaskStatus.class, "taskStatus");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TaskFuture, Completion> COMPLETIONS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TaskFuture.class, Completion.class, "completions");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TaskFuture, String> TASK_ID_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TaskFuture.class, String.class, "taskId");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<TaskFuture> RECYCLE_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(TaskFuture.class, "recycleState");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    static final int RELEASED_BY_EXECUTOR = 1;
+    static final int RELEASED_BY_USER = 2;
+    static final int NOT_RECYCLABLE = 4;
+    /**
+     * Marks the completion stack as fired, nothing could be pushed after it.
+     */
+    private static final Completion FIRED = new Completion(null, null);
     private SimpleTask<T> task;
-    private String taskId = UUID.randomUUID().toString().replaceAll("-", "");
+    /**
+     * Formatted lazily by {@link #getTaskId()}, from the sequence or a random UUID.
+     */
+    private volatile String taskId;
+    /**
+     * Sequence of the task, -1 for a random UUID task id.
+     */
+    private long sequence;
     private Long executionTimeout;
-    private TaskStatus taskStatus;
-    private Future<T> future;
-    private T result;
+    private int priority;
+    /**
+     * Group sharing the executor fairly with other groups, null for the default group. {@link FairTaskQueue}
+     */
+    private String group;
+    /**
+     * Time the task was put into the queue, unit: ns, {@link System#nanoTime()}
+     */
+    private long enqueueTime;
+    /**
+     * Sequence of the task in the write-ahead log, 0 if not logged. {@link TaskLog}
+     */
+    private long logSequence;
+    /**
+     * Whether permits of rate limits are reserved, a task deferred for its permits does not reserve again.
+     */
+    private boolean permitsReserved;
+    /**
+     * Time the permits of the task are due while it waits in its lane, unit: ns, {@link System#nanoTime()}
+     */
+    private long permitsDue;
+    private volatile TaskStatus taskStatus;
+    /**
+     * Thread executing the task, guarded by this.
+     */
+    private Thread runner;
+    private volatile T result;
+    /**
+     * Exception of the last failed execution, and count of executions. {@link QueueTaskExecutor#retryPolicy(RetryPolicy)}
+     */
+    private volatile Throwable cause;
+    private volatile int attempts;
+    /**
+     * Waiting threads and callbacks, fired once when the task turns done.
+     */
+    private volatile Completion completions;
+    /**
+     * Timeout scheduled for the execution, null before dispatching.
+     */
+    private HashedWheelTimer.Timeout timeoutHandle;
+    /**
+     * Timeout action and execution of the task future, created once and kept while the task future is recycled.
+     */
+    private final Runnable timeoutAction = this::timeout;
+    private Runnable execution;
+    /**
+     * Release bits of the executor and the user, the task future is recycled once both released it.
+     */
+    private volatile int recycleState;
 
     TaskFuture(SimpleTask<T> task) {
+        this(task, -1L);
+    }
+
+    TaskFuture(SimpleTask<T> task, long sequence) {
         this.task = task;
+        this.sequence = sequence;
         this.taskStatus = TaskStatus.WAITING;
     }
 
-    void setFuture(Future<T> future) {
-        this.future = future;
+    /**
+     * Reset a done task future to hold a new task, see {@link QueueTaskExecutor#recycle(TaskFuture)}.
+     */
+    void reset(SimpleTask<T> task, long sequence) {
+        this.task = task;
+        this.sequence = sequence;
+        this.taskId = null;
+        this.executionTimeout = null;
+        this.priority = 0;
+        this.group = null;
+        this.enqueueTime = 0L;
+        this.logSequence = 0L;
+        this.permitsReserved = false;
+        this.permitsDue = 0L;
+        this.result = null;
+        this.cause = null;
+        this.attempts = 0;
+        this.timeoutHandle = null;
+        this.completions = null;
+        this.recycleState = 0;
+        this.taskStatus = TaskStatus.WAITING;
+    }
+
+    /**
+     * Mark the task future released by the executor or the user.
+     *
+     * @param bits {@link #RELEASED_BY_EXECUTOR} or {@link #RELEASED_BY_USER}, with {@link #NOT_RECYCLABLE} if it should not be reused
+     * @return true if this call completed the release of both sides, and the task future could be reused
+     */
+    boolean release(int bits) {
+        int previous = RECYCLE_STATE_UPDATER.getAndAccumulate(this, bits, (state, bit) -> state | bit);
+        int state = previous | bits;
+        return previous != state && state == (RELEASED_BY_EXECUTOR | RELEASED_BY_USER);
     }
 
     void setTaskStatus(TaskStatus taskStatus) {
         this.taskStatus = taskStatus;
+        if (isDone(taskStatus)) {
+            fireCompletions();
+        }
+    }
+
+    boolean compareAndSetTaskStatus(TaskStatus expect, TaskStatus update) {
+        if (!TASK_STATUS_UPDATER.compareAndSet(this, expect, update)) {
+            return false;
+        }
+        if (isDone(update)) {
+            fireCompletions();
+        }
+        return true;
+    }
+
+    private static boolean isDone(TaskStatus taskStatus) {
+        return taskStatus.getStatus() >= TaskStatus.COMPLETED.getStatus();
+    }
+
+    private boolean pushCompletion(Completion completion) {
+        Completion head;
+        do {
+            head = completions;
+            if (head == FIRED) {
+                return false;
+            }
+            completion.next = head;
+        } while (!COMPLETIONS_UPDATER.compareAndSet(this, head, completion));
+        return true;
+    }
+
+    private void fireCompletions() {
+        Completion head = COMPLETIONS_UPDATER.getAndSet(this, FIRED);
+        if (head == FIRED) {
+            return;
+        }
+        // pushed as a stack, link backwards to fire in registration order, next links may still be pruned
+        Completion oldest = null;
+        for (Completion completion = head; completion != null; completion = completion.next) {
+            completion.newer = oldest;
+            oldest = completion;
+        }
+        for (Completion completion = oldest; completion != null; completion = completion.newer) {
+            completion.fire(this);
+        }
+    }
+
+    /**
+     * Unlink completions of waiting threads given up, so waiting with timeouts again and again does not grow the stack.
+     */
+    private void pruneCompletions() {
+        retry:
+        for (; ; ) {
+            Completion pred = null;
+            Completion next;
+            for (Completion completion = completions; completion != null && completion != FIRED; completion = next) {
+                next = completion.next;
+                if (!completion.isAbandoned()) {
+                    pred = completion;
+                } else if (pred != null) {
+                    pred.next = next;
+                    if (pred.isAbandoned()) {
+                        continue retry;
+                    }
+                } else if (!COMPLETIONS_UPDATER.compareAndSet(this, completion, next)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Count of completions not fired yet.
+     */
+    int getCompletionCount() {
+        int count = 0;
+        for (Completion completion = completions; completion != null && completion != FIRED; completion = completion.next) {
+            count++;
+        }
+        return count;
     }
 
-    void setResult(T result) {
+    /**
+     * Set the result and turn status from {@link TaskStatus#EXECUTING} to {@link TaskStatus#COMPLETED}.
+     *
+     * @return false if the task was already timeout or canceled, the result is dropped
+     */
+    boolean complete(T result) {
         this.result = result;
+        if (compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.COMPLETED)) {
+            return true;
+        }
+        this.result = null;
+        return false;
+    }
+
+    /**
+     * Turn status from {@link TaskStatus#EXECUTING} to {@link TaskStatus#TIMEOUT} and interrupt the executing thread.
+     */
+    void timeout() {
+        if (compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.TIMEOUT)) {
+            interruptRunner();
+        }
+    }
+
+    /**
+     * Bind the executing thread.
+     *
+     * @return false if the task is no longer {@link TaskStatus#EXECUTING} and should not run
+     */
+    synchronized boolean setRunner(Thread runner) {
+        if (taskStatus != TaskStatus.EXECUTING) {
+            return false;
+        }
+        this.runner = runner;
+        return true;
+    }
+
+    /**
+     * Unbind the executing thread and clear any interrupt aimed at this task, so it does not leak into the next task on the same thread.
+     */
+    synchronized void clearRunner() {
+        if (runner == Thread.currentThread()) {
+            Thread.interrupted();
+        }
+        runner = null;
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null) {
+            runner.interrupt();
+        }
     }
 
     SimpleTask<T> getTask() {
         return task;
     }
 
+    void setTask(SimpleTask<T> task) {
+        this.task = task;
+    }
+
     Long getExecutionTimeout() {
         return executionTimeout;
     }
@@ -50,15 +295,142 @@ public class TaskFuture<T> {
         this.executionTimeout = executionTimeout;
     }
 
+    void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    HashedWheelTimer.Timeout getTimeoutHandle() {
+        return timeoutHandle;
+    }
+
+    void setTimeoutHandle(HashedWheelTimer.Timeout timeoutHandle) {
+        this.timeoutHandle = timeoutHandle;
+    }
+
+    Runnable getTimeoutAction() {
+        return timeoutAction;
+    }
+
+    Runnable getExecution() {
+        return execution;
+    }
+
+    void setExecution(Runnable execution) {
+        this.execution = execution;
+    }
+
+    long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+    void setEnqueueTime(long enqueueTime) {
+        this.enqueueTime = enqueueTime;
+    }
+
+    long getLogSequence() {
+        return logSequence;
+    }
+
+    void setLogSequence(long logSequence) {
+        this.logSequence = logSequence;
+    }
+
+    boolean isPermitsReserved() {
+        return permitsReserved;
+    }
+
+    void setPermitsReserved(boolean permitsReserved) {
+        this.permitsReserved = permitsReserved;
+    }
+
+    long getPermitsDue() {
+        return permitsDue;
+    }
+
+    void setPermitsDue(long permitsDue) {
+        this.permitsDue = permitsDue;
+    }
+
+    /**
+     * Get priority of the task, higher is more urgent.
+     *
+     * @return priority of the task
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Get group of the task. {@link QueueTaskExecutor#submitToGroup(String, SimpleTask)}
+     *
+     * @return group of the task, null for the default group
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    void setGroup(String group) {
+        this.group = group;
+    }
+
     /**
-     * Get UUID of the task.
+     * Get id of the task, a UUID without dashes, or the sequence in sequential task id mode.
+     * {@link QueueTaskExecutor#sequentialTaskIds(Boolean)}
      *
-     * @return UUID of the task.
+     * @return id of the task.
      */
     public String getTaskId() {
+        String taskId = this.taskId;
+        if (taskId == null) {
+            taskId = sequence >= 0L ? Long.toString(sequence) : randomTaskId();
+            if (!TASK_ID_UPDATER.compareAndSet(this, null, taskId)) {
+                taskId = this.taskId;
+            }
+        }
         return taskId;
     }
 
+    private static String randomTaskId() {
+        UUID uuid = UUID.randomUUID();
+        char[] chars = new char[32];
+        long bits = uuid.getMostSignificantBits();
+        for (int i = 15; i >= 0; i--, bits >>>= 4) {
+            chars[i] = HEX_DIGITS[(int) (bits & 0xF)];
+        }
+        bits = uuid.getLeastSignificantBits();
+        for (int i = 31; i >= 16; i--, bits >>>= 4) {
+            chars[i] = HEX_DIGITS[(int) (bits & 0xF)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Get exception thrown by the last failed execution of the task, kept when a retry completed.
+     *
+     * @return exception, null if no execution failed
+     */
+    public Throwable getCause() {
+        return cause;
+    }
+
+    void setCause(Throwable cause) {
+        this.cause = cause;
+    }
+
+    /**
+     * Get count of executions of the task, more than 1 if retried. {@link QueueTaskExecutor#retryPolicy(RetryPolicy)}
+     *
+     * @return count of executions
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    int incrementAttempts() {
+        // only written by the executing thread
+        return ++attempts;
+    }
+
     /**
      * Get status of the task {@link TaskStatus}
      *
@@ -69,18 +441,22 @@ public class TaskFuture<T> {
     }
 
     /**
-     * Cancel the task execution. Block the cancel operation util task future {@link Future} is not null.
+     * Cancel the task execution. A task still {@link TaskStatus#WAITING} in the queue will be skipped by the executor.
      *
      * @param mayInterruptIfRunning true if the task executing should be interrupted; otherwise, in-progress tasks are allowed to complete.
      * @return if the task could not be cancelled, typically because it has already completed normally;
      */
     public boolean cancel(boolean mayInterruptIfRunning) {
-        while (future == null) {
-            sleep();
+        if (compareAndSetTaskStatus(TaskStatus.WAITING, TaskStatus.CANCELED)) {
+            return true;
         }
-        interrupt.set(true);
-        taskStatus = TaskStatus.CANCELED;
-        return future.cancel(mayInterruptIfRunning);
+        if (compareAndSetTaskStatus(TaskStatus.EXECUTING, TaskStatus.CANCELED)) {
+            if (mayInterruptIfRunning) {
+                interruptRunner();
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -98,25 +474,20 @@ public class TaskFuture<T> {
      * @return {@code true}/{@code false}.
      */
     public boolean isDone() {
-        return taskStatus.getStatus() >= TaskStatus.COMPLETED.getStatus();
+        return isDone(taskStatus);
     }
 
     /**
      * Wait util the task has complete and return task exit value. {@link SimpleTask#execute()}
+     * <pre>
+     *  The waiting thread is parked and woken up once the task turns done.
+     *  If the waiting thread is interrupted, returns immediately with its interrupt status kept.
+     * </pre>
      *
      * @return the computed task exit value result.
      */
     public T waitFor() {
-        while (!interrupt.get()) {
-            sleep();
-            if (taskStatus.getStatus() >= TaskStatus.COMPLETED.getStatus()) {
-                break;
-            }
-        }
-        sleep();
-        if (future != null && !future.isDone() && !future.isCancelled()) {
-            future.cancel(true);
-        }
+        awaitDone(false, 0L);
         return result;
     }
 
@@ -132,22 +503,9 @@ public class TaskFuture<T> {
      * @return {@code true} if the task has executed and completed.
      */
     public boolean waitFor(int timeout) {
-        boolean isDone = false;
-        long start = System.currentTimeMillis();
-        while (!interrupt.get()) {
-            sleep();
-            if ((System.currentTimeMillis() - start) <= timeout) {
-                if (taskStatus.getStatus() >= TaskStatus.COMPLETED.getStatus()) {
-                    isDone = true;
-                    break;
-                }
-            } else {
-                break;
-            }
-        }
-        sleep();
-        if (!isDone && future != null && !future.isDone() && !future.isCancelled()) {
-            future.cancel(true);
+        boolean isDone = awaitDone(true, TimeUnit.MILLISECONDS.toNanos(timeout));
+        if (!isDone && taskStatus == TaskStatus.EXECUTING) {
+            cancel(true);
         }
         return isDone;
     }
@@ -155,18 +513,139 @@ public class TaskFuture<T> {
     /**
      * Returns the exit value for the task.
      *
-     * @return the exit value for the task {@link SimpleTask#execute()}
+     * @return the exit value for the task {@link SimpleTask#execute()}, null if not completed
      */
     public T exitValue() {
-        sleep();
         return result;
     }
 
-    private void sleep() {
+    /**
+     * Register an action called once the task turns done, with the exit value and the final {@link TaskStatus}.
+     * <pre>
+     *  The action runs in the thread finishing the task, or immediately in the caller if the task is already done.
+     *  It should be short and never block, since it delays release of the executing thread.
+     * </pre>
+     *
+     * @param action action on done
+     * @return this {@link TaskFuture}
+     */
+    public TaskFuture<T> whenComplete(BiConsumer<? super T, TaskStatus> action) {
+        Completion completion = new Completion(null, action);
+        if (!pushCompletion(completion)) {
+            completion.fire(this);
+        }
+        return this;
+    }
+
+    /**
+     * Get a {@link CompletableFuture} completed with the exit value when the task was {@link TaskStatus#COMPLETED},
+     * cancelled when {@link TaskStatus#CANCELED}, otherwise completed exceptionally with {@link TaskException}.
+     *
+     * @return {@link CompletableFuture} of the task
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        whenComplete((result, taskStatus) -> {
+            if (taskStatus == TaskStatus.COMPLETED) {
+                completableFuture.complete(result);
+            } else if (taskStatus == TaskStatus.CANCELED) {
+                completableFuture.cancel(false);
+            } else {
+                completableFuture.completeExceptionally(new TaskException(this));
+            }
+        });
+        return completableFuture;
+    }
+
+    /**
+     * Apply the function to the exit value once the task was {@link TaskStatus#COMPLETED}. {@link #toCompletableFuture()}
+     *
+     * @param fn  function applied to the exit value
+     * @param <U> type of the function result
+     * @return {@link CompletableFuture} of the function result
+     */
+    public <U> CompletableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return toCompletableFuture().thenApply(fn);
+    }
+
+    /**
+     * Park current thread until the task turns done, timeout or current thread interrupted.
+     *
+     * @return true if the task is done
+     */
+    private boolean awaitDone(boolean timed, long nanos) {
+        if (isDone()) {
+            return true;
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Completion completion = new Completion(Thread.currentThread(), null);
+        if (!pushCompletion(completion)) {
+            return isDone();
+        }
+        boolean done = false;
         try {
-            TimeUnit.MILLISECONDS.sleep(10);
-        } catch (Exception e) {
-            logger.warn(e.getMessage());
+            while (!isDone()) {
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (timed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            done = true;
+            return true;
+        } finally {
+            completion.waiter = null;
+            if (!done) {
+                pruneCompletions();
+            }
+        }
+    }
+
+    /**
+     * Node of the completion stack, either a parked waiting thread or a callback.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class Completion {
+        private volatile Thread waiter;
+        private final BiConsumer action;
+        private volatile Completion next;
+        /**
+         * Linked only by the thread firing the completions.
+         */
+        private Completion newer;
+
+        private Completion(Thread waiter, BiConsumer action) {
+            this.waiter = waiter;
+            this.action = action;
+        }
+
+        /**
+         * A waiting thread given up, nothing to fire.
+         */
+        private boolean isAbandoned() {
+            return waiter == null && action == null;
+        }
+
+        private void fire(TaskFuture taskFuture) {
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+            if (action != null) {
+                try {
+                    action.accept(taskFuture.result, taskFuture.taskStatus);
+                } catch (Throwable e) {
+                    logger.warn(String.format("Exception happened while task complete action, message: %s", e.getMessage()), e);
+                }
+            }
         }
     }
 }
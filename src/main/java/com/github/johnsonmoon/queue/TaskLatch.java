@@ -1,41 +1,121 @@
 package com.github.johnsonmoon.queue;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Create by johnsonmoon at 2018/11/23 14:41.
  */
 public class TaskLatch {
-    private int taskCount;
+    private volatile int taskCount;
+    private final AtomicInteger executingCount = new AtomicInteger(0);
+    private final ResizableSemaphore permits;
 
     TaskLatch(int taskCount) {
         this.taskCount = taskCount;
+        this.permits = new ResizableSemaphore(taskCount);
     }
 
-    private int executingCount = 0;
-
     boolean acquire() {
-        if (executingCount >= taskCount) {
+        if (!permits.tryAcquire()) {
             return false;
         }
-        executingCount++;
+        executingCount.incrementAndGet();
         return true;
     }
 
+    /**
+     * Block until an executing count is available, then acquire it.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    void acquireInterruptibly() throws InterruptedException {
+        permits.acquire();
+        executingCount.incrementAndGet();
+    }
+
     void release() {
-        if (executingCount <= 0) {
-            return;
+        int count;
+        do {
+            count = executingCount.get();
+            if (count <= 0) {
+                return;
+            }
+        } while (!executingCount.compareAndSet(count, count - 1));
+        permits.release();
+    }
+
+    /**
+     * Change the max executing count at runtime.
+     * <pre>
+     *  Shrinking does not interrupt executing tasks, new acquisitions are refused until the executing count drops below the new size.
+     * </pre>
+     *
+     * @param newTaskCount new max executing count, at least 1
+     */
+    synchronized void resize(int newTaskCount) {
+        if (newTaskCount < 1) {
+            throw new IllegalArgumentException("Task count must be positive: " + newTaskCount);
+        }
+        int delta = newTaskCount - taskCount;
+        taskCount = newTaskCount;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
         }
-        executingCount--;
+    }
+
+    /**
+     * Get max executing count.
+     *
+     * @return max executing count
+     */
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Get count of tasks holding the latch. {@link TaskStatus#EXECUTING}
+     *
+     * @return executing count
+     */
+    public int getExecutingCount() {
+        return executingCount.get();
+    }
+
+    /**
+     * Get count still available for executing, never negative.
+     *
+     * @return available count
+     */
+    public int getAvailableCount() {
+        return Math.max(0, permits.availablePermits());
     }
 
     void printAvailableCount() {
-        System.out.println(String.format("Available count: %s, taskLatch: %s", taskCount - executingCount, this.toString()));
+        System.out.println(String.format("Available count: %s, taskLatch: %s", getAvailableCount(), this.toString()));
     }
 
     @Override
     public String toString() {
         return "TaskLatch{" +
                 "taskCount=" + taskCount +
-                ", executingCount=" + executingCount +
+                ", executingCount=" + executingCount.get() +
                 '}';
     }
+
+    /**
+     * Exposes {@link Semaphore#reducePermits(int)} so the latch can shrink without blocking.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 }
@@ -0,0 +1,477 @@
+package com.github.johnsonmoon.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of submitted tasks, see {@link QueueTaskExecutor#persistentQueue(String)}.
+ * <pre>
+ *  The log is a sequence of memory-mapped segment files of fixed size, records are appended to the last one:
+ *    [int length][byte type][long sequence][payload][int crc]
+ *  The crc covers the length, type, sequence and payload, so a corrupted header is not replayed either.
+ *  A SUBMIT record carries the serialized task, a DONE record marks the task of the sequence finished.
+ *  Submitters wait until their record is forced to disk, a flusher thread forces all records appended
+ *  meanwhile at once (group commit), so the cost of fsync is shared by concurrent submitters.
+ *  DONE records are not waited for, a task finished just before a crash is executed again after restart.
+ *  When opening, SUBMIT records without DONE are replayed, a torn record ends its segment.
+ *  Segments whose tasks are all done are deleted, oldest first. When at most a quarter of the tasks of the oldest segment
+ *  are not done, they are copied forward to the active segment under their sequences, so a long running task
+ *  does not pin the segments after it; a task found twice when opening is replayed once.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 20:40.
+ */
+class TaskLog {
+    private static Logger logger = LoggerFactory.getLogger(TaskLog.class);
+    static final byte SUBMIT = 1;
+    static final byte DONE = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final int TRAILER_SIZE = 4;
+    /**
+     * The oldest segment is compacted when its live tasks are at most 1 / COMPACT_RATIO of its tasks.
+     */
+    private static final int COMPACT_RATIO = 4;
+    private static final String SUFFIX = ".log";
+
+    private final File directory;
+    private final int segmentSize;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    /**
+     * Segment of the SUBMIT record of every task not done yet.
+     */
+    private final Map<Long, Segment> liveSegments = new ConcurrentHashMap<>();
+    private final List<Record> replayed = new ArrayList<>();
+    private final Thread flusher;
+    private Segment active;
+    private long nextSequence = 1L;
+    /**
+     * Positions over all segments, a record is durable once the flushed position passed its end.
+     */
+    private long appendedPosition = 0L;
+    private long flushedPosition = 0L;
+    private boolean closed = false;
+
+    /**
+     * Open the log in the directory and load the records to replay. {@link #getReplayed()}
+     *
+     * @param directory   directory of segment files, created if absent
+     * @param segmentSize size of a segment file, unit: byte
+     * @throws IOException if the directory or a segment could not be read or created
+     */
+    TaskLog(File directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1024 bytes: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create log directory: " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        load();
+        this.flusher = new Thread(this::flushLoop, "queue-task-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Get SUBMIT records without DONE found when opening, in submitted order.
+     *
+     * @return records to replay
+     */
+    List<Record> getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Get count of segment files.
+     *
+     * @return count of segment files
+     */
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Append a SUBMIT record and wait until it is durable.
+     *
+     * @param payload serialized task
+     * @return sequence of the task
+     * @throws IOException          if the log is closed or a segment could not be created
+     * @throws InterruptedException if interrupted while waiting for the record to be durable
+     */
+    long appendSubmit(byte[] payload) throws IOException, InterruptedException {
+        return appendSubmit(Collections.singletonList(payload))[0];
+    }
+
+    /**
+     * Append SUBMIT records together and wait once until they are durable.
+     *
+     * @param payloads serialized tasks
+     * @return sequences of the tasks, in order of the payloads
+     * @throws IOException          if the log is closed or a segment could not be created
+     * @throws InterruptedException if interrupted while waiting for the records to be durable
+     */
+    long[] appendSubmit(List<byte[]> payloads) throws IOException, InterruptedException {
+        long[] sequences = new long[payloads.size()];
+        long end;
+        synchronized (this) {
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = nextSequence++;
+                try {
+                    append(SUBMIT, sequences[i], payloads.get(i));
+                } catch (IOException e) {
+                    // none of the tasks is queued, the ones appended must not be replayed
+                    for (int j = 0; j < i; j++) {
+                        appendDone(sequences[j], TaskStatus.INTERRUPTED);
+                    }
+                    throw e;
+                }
+                liveSegments.put(sequences[i], active);
+                active.liveCount.incrementAndGet();
+                active.submitCount++;
+            }
+            end = appendedPosition;
+        }
+        awaitFlushed(end);
+        return sequences;
+    }
+
+    /**
+     * Append a DONE record of the task, without waiting for it to be durable. Ignored after the log is closed.
+     *
+     * @param sequence   sequence of the task
+     * @param taskStatus final status of the task
+     */
+    void appendDone(long sequence, TaskStatus taskStatus) {
+        Segment segment = liveSegments.remove(sequence);
+        if (segment == null) {
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                append(DONE, sequence, new byte[]{(byte) taskStatus.ordinal()});
+            } catch (IOException e) {
+                logger.warn(String.format("Exception happened while appending task log, message: %s", e.getMessage()), e);
+                return;
+            }
+            segment.liveCount.decrementAndGet();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Force the appended records and stop the flusher.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long append(byte type, long sequence, byte[] payload) throws IOException {
+        if (closed) {
+            throw new IOException("Task log closed: " + directory);
+        }
+        int length = HEADER_SIZE + payload.length + TRAILER_SIZE;
+        if (length > segmentSize) {
+            throw new IOException(String.format("Record of %s bytes exceeds segment size %s", length, segmentSize));
+        }
+        if (active == null || active.size + length > segmentSize) {
+            roll();
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int offset = active.size;
+        buffer.put(offset + 4, type);
+        buffer.putLong(offset + 5, sequence);
+        // called through Buffer, the ByteBuffer overload of JDK 9+ does not exist on Java 8
+        ((Buffer) buffer).position(offset + HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(offset + HEADER_SIZE + payload.length, checksum(length, type, sequence, payload));
+        // the length is written last, a record is not seen by replay until it is complete
+        buffer.putInt(offset, length);
+        active.size += length;
+        active.dirty = true;
+        appendedPosition += length;
+        notifyAll();
+        return appendedPosition;
+    }
+
+    private static int checksum(int length, byte type, long sequence, byte[] payload) {
+        byte[] header = new byte[HEADER_SIZE];
+        for (int i = 0; i < 4; i++) {
+            header[i] = (byte) (length >>> (24 - 8 * i));
+        }
+        header[4] = type;
+        for (int i = 0; i < 8; i++) {
+            header[5 + i] = (byte) (sequence >>> (56 - 8 * i));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Start a new segment, the rest of the previous one counts as appended so positions stay comparable.
+     */
+    private void roll() throws IOException {
+        if (active != null) {
+            appendedPosition += segmentSize - active.size;
+            active.size = segmentSize;
+        }
+        long index = active == null ? 0L : active.index + 1;
+        active = Segment.create(new File(directory, fileName(index)), index, segmentSize);
+        segments.addLast(active);
+    }
+
+    private static String fileName(long index) {
+        return String.format("%020d%s", index, SUFFIX);
+    }
+
+    private void awaitFlushed(long position) throws InterruptedException {
+        synchronized (this) {
+            while (flushedPosition < position && !closed) {
+                wait();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Segment> dirty;
+            long target;
+            boolean closing;
+            synchronized (this) {
+                while (!closed && appendedPosition == flushedPosition && !deletable() && !compactable()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                closing = closed;
+                if (!closing && compactable()) {
+                    // the copies are forced by this round before the segment is deleted
+                    compact();
+                }
+                target = appendedPosition;
+                dirty = new ArrayList<>();
+                for (Segment segment : segments) {
+                    if (segment.dirty) {
+                        segment.dirty = false;
+                        dirty.add(segment);
+                    }
+                }
+            }
+            // forced outside the lock, submitters keep appending the next group meanwhile
+            for (Segment segment : dirty) {
+                segment.force();
+            }
+            synchronized (this) {
+                flushedPosition = target;
+                deleteDoneSegments();
+                notifyAll();
+                if (closing) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean deletable() {
+        Segment oldest = segments.peekFirst();
+        return oldest != null && oldest != active && oldest.liveCount.get() == 0;
+    }
+
+    private boolean compactable() {
+        Segment oldest = segments.peekFirst();
+        if (oldest == null || oldest == active) {
+            return false;
+        }
+        int liveCount = oldest.liveCount.get();
+        return liveCount > 0 && (long) liveCount * COMPACT_RATIO <= oldest.submitCount;
+    }
+
+    /**
+     * Copy the SUBMIT records of tasks not done out of the oldest segment to the active one.
+     * <pre>
+     *  A task done meanwhile appends its DONE record after the copy, as both hold the log,
+     *  so replay never sees the copy after the DONE record.
+     * </pre>
+     */
+    private void compact() {
+        Segment oldest = segments.peekFirst();
+        for (Record record : oldest.read()) {
+            if (record.type != SUBMIT || liveSegments.get(record.sequence) != oldest) {
+                continue;
+            }
+            try {
+                append(SUBMIT, record.sequence, record.payload);
+            } catch (IOException e) {
+                logger.warn(String.format("Exception happened while compacting task log segment %s, message: %s", oldest.file, e.getMessage()), e);
+                return;
+            }
+            if (liveSegments.replace(record.sequence, oldest, active)) {
+                active.liveCount.incrementAndGet();
+                active.submitCount++;
+                oldest.liveCount.decrementAndGet();
+            }
+        }
+    }
+
+    private void deleteDoneSegments() {
+        // DONE records in a segment only refer to older segments, so segments are deleted oldest first
+        while (deletable()) {
+            Segment oldest = segments.pollFirst();
+            if (!oldest.file.delete()) {
+                logger.warn(String.format("Could not delete task log segment %s", oldest.file));
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            throw new IOException("Could not list log directory: " + directory);
+        }
+        Arrays.sort(files);
+        Map<Long, Record> live = new LinkedHashMap<>();
+        Map<Long, Segment> owners = new ConcurrentHashMap<>();
+        long lastIndex = -1L;
+        for (File file : files) {
+            long index = Long.parseLong(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+            Segment segment = Segment.open(file, index);
+            segments.addLast(segment);
+            lastIndex = index;
+            for (Record record : segment.read()) {
+                nextSequence = Math.max(nextSequence, record.sequence + 1);
+                if (record.type == SUBMIT) {
+                    segment.submitCount++;
+                    // a compacted copy keeps the replay order of the first one
+                    live.putIfAbsent(record.sequence, record);
+                    owners.put(record.sequence, segment);
+                } else {
+                    live.remove(record.sequence);
+                    owners.remove(record.sequence);
+                }
+            }
+        }
+        for (Map.Entry<Long, Segment> entry : owners.entrySet()) {
+            entry.getValue().liveCount.incrementAndGet();
+            liveSegments.put(entry.getKey(), entry.getValue());
+        }
+        replayed.addAll(live.values());
+        // appending goes on in a new segment, never after a possibly torn tail
+        for (Segment segment : segments) {
+            segment.size = segmentSize;
+        }
+        active = Segment.create(new File(directory, fileName(lastIndex + 1)), lastIndex + 1, segmentSize);
+        segments.addLast(active);
+        // a segment without live tasks may still hold DONE records of older ones, only the oldest are deleted
+        deleteDoneSegments();
+        logger.info(String.format("Task log %s opened, %s tasks to replay.", directory, replayed.size()));
+    }
+
+    /**
+     * Record read back from the log.
+     */
+    static class Record {
+        final byte type;
+        final long sequence;
+        final byte[] payload;
+
+        Record(byte type, long sequence, byte[] payload) {
+            this.type = type;
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger liveCount = new AtomicInteger(0);
+        /**
+         * Bytes appended, count of SUBMIT records and whether appended since last forced, guarded by the log.
+         */
+        private int size;
+        private int submitCount;
+        private boolean dirty;
+
+        private Segment(File file, long index, MappedByteBuffer buffer) {
+            this.file = file;
+            this.index = index;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(File file, long index, int segmentSize) throws IOException {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(segmentSize);
+                return new Segment(file, index, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            }
+        }
+
+        private static Segment open(File file, long index) throws IOException {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                return new Segment(file, index, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length()));
+            }
+        }
+
+        private void force() {
+            buffer.force();
+        }
+
+        private List<Record> read() {
+            List<Record> records = new ArrayList<>();
+            int offset = 0;
+            int capacity = buffer.capacity();
+            while (offset + HEADER_SIZE + TRAILER_SIZE <= capacity) {
+                int length = buffer.getInt(offset);
+                if (length < HEADER_SIZE + TRAILER_SIZE || offset + length > capacity) {
+                    break;
+                }
+                byte type = buffer.get(offset + 4);
+                long sequence = buffer.getLong(offset + 5);
+                byte[] payload = new byte[length - HEADER_SIZE - TRAILER_SIZE];
+                ((Buffer) buffer).position(offset + HEADER_SIZE);
+                buffer.get(payload);
+                if (buffer.getInt(offset + HEADER_SIZE + payload.length) != checksum(length, type, sequence, payload)) {
+                    logger.warn(String.format("Torn record at %s of task log segment %s, the rest is skipped.", offset, file));
+                    break;
+                }
+                records.add(new Record(type, sequence, payload));
+                offset += length;
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * Recorder of executor metrics, could be plugged by {@link QueueTaskExecutor#metrics(TaskMetrics)}.
+ * <pre>
+ *  Methods are called on the hot path by submitting threads, the executor thread and worker threads,
+ *  implementations should be thread-safe and cheap, without locks or allocation.
+ *  {@link DefaultTaskMetrics} records into striped counters and histograms and is exposed by JMX.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 18:30.
+ */
+public interface TaskMetrics {
+    /**
+     * Called once when the executor starts.
+     *
+     * @param executor the executor recording into this
+     */
+    default void bind(QueueTaskExecutor<?> executor) {
+    }
+
+    /**
+     * Record tasks accepted into the queue.
+     *
+     * @param count count of tasks
+     */
+    void recordSubmitted(int count);
+
+    /**
+     * Record a task starting to execute.
+     *
+     * @param queueWaitNanos time the task waited in the queue, unit: ns
+     */
+    void recordQueueWait(long queueWaitNanos);
+
+    /**
+     * Record a task finishing executing, whatever its outcome.
+     *
+     * @param executionNanos execution time of the task, unit: ns
+     */
+    void recordExecution(long executionNanos);
+
+    /**
+     * Record the final status of a task, once for every task submitted, executed or not.
+     *
+     * @param taskStatus final status, {@link TaskStatus#REJECTED} for tasks rejected or dropped
+     */
+    void recordOutcome(TaskStatus taskStatus);
+}
@@ -0,0 +1,45 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * JMX view of {@link DefaultTaskMetrics}, durations are in microseconds.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 18:40.
+ */
+public interface TaskMetricsMXBean {
+    int getQueueDepth();
+
+    long getInFlightCount();
+
+    long getSubmittedCount();
+
+    /**
+     * Get submitted tasks per second, over the interval since the previous call at least one second ago.
+     *
+     * @return submitted tasks per second
+     */
+    double getEnqueueRate();
+
+    long getCompletedCount();
+
+    long getErrorCount();
+
+    long getCanceledCount();
+
+    long getTimeoutCount();
+
+    long getInterruptedCount();
+
+    long getRejectedCount();
+
+    long getQueueWaitP50();
+
+    long getQueueWaitP99();
+
+    long getQueueWaitMax();
+
+    long getExecutionTimeP50();
+
+    long getExecutionTimeP99();
+
+    long getExecutionTimeMax();
+}
@@ -0,0 +1,105 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded queue holding {@link TaskFuture} waiting for executing, could be plugged by {@link QueueTaskExecutor#taskQueue(TaskQueue)}.
+ * <pre>
+ *  Only the executor loop thread takes and polls, any thread puts.
+ *  The executor stamps the enqueue time of a task future before putting it, queues need not.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 12:46.
+ */
+public interface TaskQueue<T> {
+    /**
+     * Put the task future, block while the queue is full.
+     *
+     * @param taskFuture task future
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void put(TaskFuture<T> taskFuture) throws InterruptedException;
+
+    /**
+     * Put the task future, wait up to the timeout while the queue is full.
+     *
+     * @param taskFuture task future
+     * @param timeout    the maximum time to wait while the queue is full, 0 for not waiting
+     * @param unit       unit of the timeout
+     * @return {@code true} if put, {@code false} if the queue is still full when timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean offer(TaskFuture<T> taskFuture, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Put all the task futures in order, block while the queue is full.
+     *
+     * @param taskFutures task futures
+     * @return count of task futures put, less than the size only if interrupted while waiting, with the interrupt status set
+     */
+    int putAll(List<TaskFuture<T>> taskFutures);
+
+    /**
+     * Take the next task future, block while the queue is empty.
+     *
+     * @return next task future
+     * @throws InterruptedException if interrupted while waiting
+     */
+    TaskFuture<T> take() throws InterruptedException;
+
+    /**
+     * Take the next task future only if it matches the predicate, wait up to the timeout while the queue is empty.
+     *
+     * @param predicate predicate the next task future should match
+     * @param timeout   the maximum time to wait while the queue is empty, 0 for not waiting
+     * @param unit      unit of the timeout
+     * @return next task future, null if timeout or the next one does not match
+     * @throws InterruptedException if interrupted while waiting
+     */
+    TaskFuture<T> poll(Predicate<? super TaskFuture<T>> predicate, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Take the task future waiting the longest, without waiting.
+     *
+     * @return oldest task future, null if the queue is empty
+     */
+    TaskFuture<T> pollOldest();
+
+    /**
+     * Take the task future to drop for the given one not put, without waiting.
+     *
+     * @param taskFuture task future not put as the queue is full
+     * @return oldest task future, null if the queue is empty, queues bounding sub-queues may take it from the sub-queue of the given one
+     */
+    default TaskFuture<T> pollOldest(TaskFuture<T> taskFuture) {
+        return pollOldest();
+    }
+
+    /**
+     * Take the latest task future of the lowest priority lower than the given one, without waiting. {@link TaskFuture#getPriority()}
+     *
+     * @param priority priority the task future taken should be lower than
+     * @return task future of lower priority, null if none, queues without priority levels always return null
+     */
+    default TaskFuture<T> pollLowerPriority(int priority) {
+        return null;
+    }
+
+    /**
+     * Get count of task futures in the queue.
+     *
+     * @return size of the queue
+     */
+    int size();
+
+    /**
+     * Get count of task futures of the priority in the queue. {@link TaskFuture#getPriority()}
+     *
+     * @param priority priority of the task futures
+     * @return size of the priority, queues without priority levels hold all task futures in priority 0
+     */
+    default int size(int priority) {
+        return priority == 0 ? size() : 0;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.johnsonmoon.queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer of tasks stored out of the heap or in the write-ahead log,
+ * see {@link QueueTaskExecutor#offHeapPayloads(Boolean)} and {@link QueueTaskExecutor#persistentQueue(String)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 21:40.
+ */
+public interface TaskSerializer<T> {
+    /**
+     * Serialize the task.
+     *
+     * @param task {@link SimpleTask}
+     * @return bytes of the task
+     * @throws IllegalArgumentException if the task is not supported by the serializer
+     * @throws IOException              if failed to serialize
+     */
+    byte[] serialize(SimpleTask<T> task) throws IOException;
+
+    /**
+     * Deserialize a task from the remaining bytes of the buffer.
+     *
+     * @param buffer bytes of the task, may be a view of off-heap memory only valid during the call
+     * @return {@link SimpleTask}
+     * @throws IOException if failed to deserialize
+     */
+    SimpleTask<T> deserialize(ByteBuffer buffer) throws IOException;
+}
@@ -10,7 +10,8 @@ public enum TaskStatus {
     ERROR(3),
     CANCELED(4),
     TIMEOUT(5),
-    INTERRUPTED(6);
+    INTERRUPTED(6),
+    REJECTED(7);
 
     private Integer status;
 
@@ -0,0 +1,21 @@
+package com.github.johnsonmoon.queue;
+
+/**
+ * How a thread waits on the lock-free ring buffer queue, see {@link QueueTaskExecutor#waitStrategy(WaitStrategy)}.
+ * <p>
+ * Create by johnsonmoon at 2026/10/18 16:30.
+ */
+public enum WaitStrategy {
+    /**
+     * Spin on the ring buffer, the lowest latency, but burns a core for each waiting thread.
+     */
+    BUSY_SPIN,
+    /**
+     * Yield the core between checks, low latency with less cpu than spinning when cores are shared.
+     */
+    YIELD,
+    /**
+     * Park until signalled, no cpu while waiting. Producers only take a lock when a thread is parked.
+     */
+    PARK
+}
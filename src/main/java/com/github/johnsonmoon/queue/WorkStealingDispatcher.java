@@ -0,0 +1,214 @@
+package com.github.johnsonmoon.queue;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Engine replacing the single queue and executor thread of {@link QueueTaskExecutor}, see {@link QueueTaskExecutor#workStealing(Boolean)}.
+ * <pre>
+ *  Every worker thread owns a deque and executes its tasks in submitted order,
+ *  an idle worker steals from the tail of the other deques before parking.
+ *  Tasks are pushed to the worker chosen by the affinity key, or a random worker without key,
+ *  so producers and workers contend on different locks.
+ *  The count of workers is the concurrence count, the capacity bounds all deques together.
+ * </pre>
+ * Create by johnsonmoon at 2026/10/18 15:20.
+ */
+class WorkStealingDispatcher<T> {
+    private final QueueTaskExecutor<T> executor;
+    private final Worker[] workers;
+    private final Semaphore capacity;
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+    private volatile boolean stopped = false;
+
+    @SuppressWarnings("unchecked")
+    WorkStealingDispatcher(QueueTaskExecutor<T> executor, int workerCount, int capacity) {
+        this.executor = executor;
+        this.capacity = new Semaphore(capacity);
+        this.workers = (Worker[]) new WorkStealingDispatcher<?>.Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    void start() {
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+    }
+
+    /**
+     * Push the task future to the worker of the affinity key, block while all deques are full.
+     *
+     * @param taskFuture  task future
+     * @param affinityKey key choosing the worker, null for a random worker
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void put(TaskFuture<T> taskFuture, Object affinityKey) throws InterruptedException {
+        capacity.acquire();
+        push(taskFuture, affinityKey);
+    }
+
+    /**
+     * Push the task future to the worker of the affinity key, wait up to the timeout while all deques are full.
+     *
+     * @param taskFuture  task future
+     * @param affinityKey key choosing the worker, null for a random worker
+     * @param timeout     the maximum time to wait, unit: ms, 0 for not waiting
+     * @return {@code true} if pushed, {@code false} if all deques are still full when timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean offer(TaskFuture<T> taskFuture, Object affinityKey, long timeout) throws InterruptedException {
+        if (!capacity.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        push(taskFuture, affinityKey);
+        return true;
+    }
+
+    private void push(TaskFuture<T> taskFuture, Object affinityKey) {
+        Worker worker = workers[affinityKey == null
+                ? ThreadLocalRandom.current().nextInt(workers.length)
+                : indexOf(affinityKey)];
+        worker.push(taskFuture);
+        signal(worker);
+    }
+
+    /**
+     * Get count of task futures in all deques.
+     *
+     * @return size of all deques
+     */
+    int size() {
+        int size = 0;
+        for (Worker worker : workers) {
+            size += worker.size;
+        }
+        return size;
+    }
+
+    private int indexOf(Object affinityKey) {
+        int hash = affinityKey.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % workers.length;
+    }
+
+    /**
+     * Wake the worker owning the new task, or an idle worker to steal it when the owner is busy.
+     * <pre>
+     *  The parked flag is cleared by the waker, so producers racing on the same owner wake different workers
+     *  instead of unparking the owner again before it was scheduled.
+     * </pre>
+     */
+    private void signal(Worker owner) {
+        if (owner.parked.compareAndSet(true, false)) {
+            LockSupport.unpark(owner.thread);
+            return;
+        }
+        signalIdle(owner);
+    }
+
+    /**
+     * Wake one parked worker other than the given one, if any.
+     */
+    private void signalIdle(Worker self) {
+        if (idleCount.get() > 0) {
+            for (Worker worker : workers) {
+                if (worker != self && worker.parked.compareAndSet(true, false)) {
+                    LockSupport.unpark(worker.thread);
+                    return;
+                }
+            }
+        }
+    }
+
+    private TaskFuture<T> steal(Worker thief) {
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            Worker victim = workers[(start + i) % workers.length];
+            if (victim != thief && victim.size > 0) {
+                TaskFuture<T> taskFuture = victim.pollLast();
+                if (taskFuture != null) {
+                    return taskFuture;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasWork() {
+        for (Worker worker : workers) {
+            if (worker.size > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class Worker implements Runnable {
+        private final ArrayDeque<TaskFuture<T>> deque = new ArrayDeque<>();
+        private final Thread thread;
+        private volatile int size = 0;
+        private final AtomicBoolean parked = new AtomicBoolean(false);
+
+        private Worker(int index) {
+            this.thread = new Thread(this, "queue-task-worker-" + index);
+        }
+
+        private synchronized void push(TaskFuture<T> taskFuture) {
+            deque.addLast(taskFuture);
+            size = deque.size();
+        }
+
+        private synchronized TaskFuture<T> pollFirst() {
+            TaskFuture<T> taskFuture = deque.pollFirst();
+            size = deque.size();
+            return taskFuture;
+        }
+
+        private synchronized TaskFuture<T> pollLast() {
+            TaskFuture<T> taskFuture = deque.pollLast();
+            size = deque.size();
+            return taskFuture;
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                TaskFuture<T> taskFuture = size > 0 ? pollFirst() : null;
+                if (taskFuture == null) {
+                    taskFuture = steal(this);
+                }
+                if (taskFuture != null) {
+                    capacity.release();
+                    // propagate the wake up while work is left, a single signal may have been absorbed by this worker
+                    if (hasWork()) {
+                        signalIdle(this);
+                    }
+                    executor.runTask(taskFuture);
+                    continue;
+                }
+                idleCount.incrementAndGet();
+                parked.set(true);
+                // re-check after publishing parked, a producer either sees it or its task is seen here
+                if (!hasWork() && !stopped) {
+                    LockSupport.park(this);
+                }
+                parked.set(false);
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+}
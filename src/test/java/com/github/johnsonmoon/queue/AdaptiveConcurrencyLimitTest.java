@@ -0,0 +1,105 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 18:10.
+ */
+public class AdaptiveConcurrencyLimitTest {
+    private static Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimitTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static void feed(AdaptiveConcurrencyLimit limit, int count, long executionMillis, long queueWaitMillis) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(executionMillis), TimeUnit.MILLISECONDS.toNanos(queueWaitMillis));
+        }
+    }
+
+    @Test
+    public void limitTest() {
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger lowest = new AtomicInteger(Integer.MAX_VALUE);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 20, newLimit -> {
+            applied.set(newLimit);
+            lowest.accumulateAndGet(newLimit, Math::min);
+        });
+
+        // steady latency without queue wait, nothing to gain
+        feed(limit, 200, 10, 0);
+        Assert.assertEquals(4, limit.getLimit());
+
+        // steady latency while tasks wait in the queue, probe up to max
+        feed(limit, 200, 10, 100);
+        Assert.assertEquals(20, limit.getLimit());
+        Assert.assertEquals(20, applied.get());
+
+        // downstream slows down, back off towards min until the slower latency becomes the usual one
+        feed(limit, 100, 50, 100);
+        logger.info(String.format("Lowest limit after slowing down: %s", lowest.get()));
+        Assert.assertTrue(lowest.get() < 10);
+        Assert.assertEquals(limit.getLimit(), applied.get());
+    }
+
+    @Test
+    public void resetTest() {
+        AtomicInteger applied = new AtomicInteger();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 20, applied::set);
+        feed(limit, 200, 10, 100);
+        Assert.assertEquals(20, limit.getLimit());
+
+        // the user count is applied and tuned from, not overridden by the estimate before it
+        limit.reset(3);
+        Assert.assertEquals(3, limit.getLimit());
+        Assert.assertEquals(3, applied.get());
+        feed(limit, 50, 10, 0);
+        Assert.assertEquals(3, limit.getLimit());
+
+        limit.reset(50);
+        Assert.assertEquals(20, limit.getLimit());
+        Assert.assertEquals(20, applied.get());
+    }
+
+    @Test
+    public void executorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .adaptiveConcurrence(true)
+                .taskConcurrenceCount(2)
+                .maxConcurrenceCount(8)
+                .start();
+
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int num = i;
+            taskFutures.add(executor.submit(() -> {
+                sleep(10);
+                return "-DONE-" + num;
+            }));
+        }
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals("-DONE-" + i, taskFutures.get(i).waitFor());
+        }
+        logger.info(String.format("Concurrence count tuned to %s", executor.getTaskLatch().getTaskCount()));
+        Assert.assertTrue(executor.getTaskLatch().getTaskCount() > 2);
+
+        executor.taskConcurrenceCount(1);
+        Assert.assertEquals(1, executor.getTaskLatch().getTaskCount());
+        Assert.assertEquals("-DONE-", executor.submit(() -> "-DONE-").waitFor());
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 14:20.
+ */
+public class BatchTaskTest {
+    private static Logger logger = LoggerFactory.getLogger(BatchTaskTest.class);
+
+    @Test
+    public void batchTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .batchSize(50)
+                .batchWaitTime(2_000)
+                .start();
+
+        AtomicInteger invocations = new AtomicInteger(0);
+        BatchTask<Integer, String> writer = items -> {
+            invocations.incrementAndGet();
+            Assert.assertTrue(items.size() <= 50);
+            List<String> results = new ArrayList<>();
+            for (Integer item : items) {
+                results.add("-ROW-" + item);
+            }
+            return results;
+        };
+
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            taskFutures.add(executor.submit(writer, i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("-ROW-" + i, taskFutures.get(i).waitFor());
+        }
+        logger.info(String.format("1000 items executed in %s invocations", invocations.get()));
+        Assert.assertTrue(invocations.get() < 1000);
+
+        executor.stop();
+    }
+
+    @Test
+    public void batchErrorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .start();
+
+        BatchTask<Integer, String> broken = items -> new ArrayList<>();
+        TaskFuture<String> taskFuture = executor.submit(broken, 1);
+        Assert.assertNull(taskFuture.waitFor());
+        Assert.assertEquals(TaskStatus.ERROR, taskFuture.getTaskStatus());
+
+        // plain tasks and batch items share the queue
+        TaskFuture<String> plain = executor.submit(() -> "-DONE-");
+        Assert.assertEquals("-DONE-", plain.waitFor());
+
+        executor.stop();
+    }
+}
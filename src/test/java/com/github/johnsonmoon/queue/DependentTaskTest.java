@@ -0,0 +1,101 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create by johnsonmoon at 2026/10/19 00:05.
+ */
+public class DependentTaskTest {
+    private static Logger logger = LoggerFactory.getLogger(DependentTaskTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void diamondTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .start();
+
+        long start = System.nanoTime();
+        TaskFuture<String> a = executor.submit(() -> {
+            sleep(200);
+            return "a";
+        });
+        TaskFuture<String> b = executor.submitAfter(Collections.singletonList(a), results -> results.get(0) + "b");
+        TaskFuture<String> c = executor.submit(() -> {
+            sleep(200);
+            return "c";
+        });
+        TaskFuture<String> d = executor.submitAfter(Arrays.asList(b, c), results -> String.join("+", results));
+        Assert.assertEquals(TaskStatus.WAITING, d.getTaskStatus());
+
+        Assert.assertEquals("ab+c", d.waitFor());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info(String.format("Graph done in %s ms", elapsed));
+        // a and c overlap
+        Assert.assertTrue(elapsed < 390);
+
+        Assert.assertEquals("-DONE-", executor.submitAfter(Collections.emptyList(), results -> "-DONE-").waitFor());
+
+        executor.stop();
+    }
+
+    @Test
+    public void failureTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .start();
+
+        TaskFuture<String> a = executor.submit(() -> {
+            sleep(100);
+            throw new IllegalStateException("-FAILED-");
+        });
+        TaskFuture<String> c = executor.submit(() -> "c");
+        TaskFuture<String> b = executor.submitAfter(Arrays.asList(a, c), results -> "b");
+        TaskFuture<String> d = executor.submitAfter(Collections.singletonList(b), results -> "d");
+
+        Assert.assertNull(d.waitFor());
+        Assert.assertEquals(TaskStatus.ERROR, a.getTaskStatus());
+        Assert.assertEquals(TaskStatus.CANCELED, b.getTaskStatus());
+        Assert.assertEquals(TaskStatus.CANCELED, d.getTaskStatus());
+
+        executor.stop();
+    }
+
+    @Test
+    public void chainTest() {
+        // waiting for upstream tasks inside tasks would dead lock a single thread, dependencies hold no thread
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .start();
+
+        TaskFuture<String> taskFuture = executor.submit(() -> "0");
+        for (int i = 0; i < 1_000; i++) {
+            taskFuture = executor.submitAfter(Collections.singletonList(taskFuture),
+                    results -> String.valueOf(Integer.parseInt(results.get(0)) + 1));
+        }
+        Assert.assertEquals("1000", taskFuture.waitFor());
+
+        executor.stop();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void persistentQueueTest() {
+        // results of upstream tasks could not be recovered from the write-ahead log
+        new QueueTaskExecutor<String>()
+                .persistentQueue("unused")
+                .submitAfter(Collections.emptyList(), results -> "-DONE-");
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/19 02:48.
+ */
+public class FairSchedulingTest {
+    private static Logger logger = LoggerFactory.getLogger(FairSchedulingTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static TaskFuture<String> taskFuture(String group, String name) {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> name);
+        taskFuture.setGroup(group);
+        return taskFuture;
+    }
+
+    @Test
+    public void weightTest() throws Exception {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(100, 100, Collections.singletonMap("a", 2),
+                Collections.emptyMap(), Collections.emptyMap());
+        for (int i = 1; i <= 6; i++) {
+            queue.put(taskFuture("a", "a" + i));
+        }
+        queue.put(taskFuture("b", "b1"));
+        queue.put(taskFuture("b", "b2"));
+        Assert.assertEquals(8, queue.size());
+        Assert.assertEquals(2, queue.size("b"));
+
+        List<String> order = new ArrayList<>();
+        while (queue.size() > 0) {
+            TaskFuture<String> taskFuture = queue.take();
+            order.add(taskFuture.getTask().execute());
+            queue.release(taskFuture);
+        }
+        logger.info(String.format("Taken order: %s", order));
+        Assert.assertEquals("[a1, a2, b1, a3, a4, b2, a5, a6]", order.toString());
+        // idle groups not configured are dropped
+        Assert.assertEquals(1, queue.getGroupCount());
+    }
+
+    @Test
+    public void boundTest() throws Exception {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(3, 2, Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap());
+        Assert.assertTrue(queue.offer(taskFuture("a", "a1"), 0L, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(queue.offer(taskFuture("a", "a2"), 0L, TimeUnit.MILLISECONDS));
+        // the group is full, not the queue
+        TaskFuture<String> a3 = taskFuture("a", "a3");
+        Assert.assertFalse(queue.offer(a3, 0L, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(queue.offer(taskFuture("b", "b1"), 0L, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(queue.offer(taskFuture("c", "c1"), 0L, TimeUnit.MILLISECONDS));
+
+        // room is made in the group of the task not put
+        Assert.assertEquals("a1", queue.pollOldest(a3).getTask().execute());
+        Assert.assertTrue(queue.offer(a3, 0L, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, queue.size("a"));
+        Assert.assertEquals(1, queue.size("b"));
+    }
+
+    @Test
+    public void fullGroupWaiterTest() throws Exception {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(3, 2, Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap());
+        queue.put(taskFuture("b", "b1"));
+        queue.put(taskFuture("a", "a1"));
+        queue.put(taskFuture("a", "a2"));
+        // the queue is full and group a is at its bound
+        Thread putA = new Thread(() -> {
+            try {
+                queue.put(taskFuture("a", "a3"));
+            } catch (InterruptedException e) {
+                logger.debug(e.getMessage());
+            }
+        });
+        putA.start();
+        sleep(100);
+        Thread putC = new Thread(() -> {
+            try {
+                queue.put(taskFuture("c", "c1"));
+            } catch (InterruptedException e) {
+                logger.debug(e.getMessage());
+            }
+        });
+        putC.start();
+        sleep(100);
+
+        // room is made in the queue but not in group a, the waiter of group c must not be left asleep
+        Assert.assertEquals("b1", queue.take().getTask().execute());
+        putC.join(1000L);
+        Assert.assertFalse(putC.isAlive());
+        Assert.assertEquals(1, queue.size("c"));
+        Assert.assertTrue(putA.isAlive());
+
+        Assert.assertEquals("a1", queue.take().getTask().execute());
+        putA.join(1000L);
+        Assert.assertFalse(putA.isAlive());
+        Assert.assertEquals(2, queue.size("a"));
+        Assert.assertEquals(3, queue.size());
+    }
+
+    @Test
+    public void idleGroupTest() throws Exception {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(100, 2, Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap());
+        BatchTask<String, String> batchTask = items -> items;
+        for (int i = 0; i < 10; i++) {
+            TaskFuture<String> item = new TaskFuture<>(new BatchItem<>(batchTask, "item" + i));
+            item.setGroup("batch" + i);
+            queue.put(item);
+        }
+        Assert.assertEquals(10, queue.getGroupCount());
+        // batch items are never released, the group is dropped when its last one is taken
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("item" + i, queue.take().getTask().execute());
+        }
+        Assert.assertEquals(0, queue.getGroupCount());
+
+        for (int i = 0; i < 10; i++) {
+            TaskFuture<String> taskFuture = taskFuture("evicted" + i, "evicted" + i);
+            queue.put(taskFuture);
+            Assert.assertEquals("evicted" + i, queue.pollOldest(taskFuture).getTask().execute());
+        }
+        Assert.assertEquals(0, queue.getGroupCount());
+        Assert.assertEquals(0, queue.size());
+
+        // stale ring entries of dropped groups are skipped
+        queue.put(taskFuture("evicted0", "again"));
+        TaskFuture<String> again = queue.take();
+        Assert.assertEquals("again", again.getTask().execute());
+        queue.release(again);
+        Assert.assertEquals(0, queue.getGroupCount());
+    }
+
+    @Test
+    public void concurrenceTest() throws Exception {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(100, 100, Collections.emptyMap(),
+                Collections.singletonMap("min", 2), Collections.singletonMap("max", 1));
+        queue.put(taskFuture("max", "max1"));
+        queue.put(taskFuture("max", "max2"));
+        queue.put(taskFuture("other", "other1"));
+        queue.put(taskFuture("min", "min1"));
+        queue.put(taskFuture("min", "min2"));
+        queue.put(taskFuture("min", "min3"));
+
+        // groups below their min are served first, up to their min
+        Assert.assertEquals("min1", queue.take().getTask().execute());
+        Assert.assertEquals("min2", queue.take().getTask().execute());
+        TaskFuture<String> max1 = queue.take();
+        Assert.assertEquals("max1", max1.getTask().execute());
+        Assert.assertEquals("other1", queue.take().getTask().execute());
+        Assert.assertEquals("min3", queue.take().getTask().execute());
+        // the max group is executing its max
+        Assert.assertNull(queue.poll(taskFuture -> true, 50L, TimeUnit.MILLISECONDS));
+        queue.release(max1);
+        Assert.assertEquals("max2", queue.poll(taskFuture -> true, 0L, TimeUnit.MILLISECONDS).getTask().execute());
+    }
+
+    @Test
+    public void executorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .fairScheduling(true)
+                .groupConcurrence("flood", 0, 1)
+                .start();
+
+        AtomicInteger executing = new AtomicInteger(0);
+        AtomicInteger maxExecuting = new AtomicInteger(0);
+        List<TaskFuture<String>> flood = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            flood.add(executor.submitToGroup("flood", () -> {
+                maxExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+                sleep(20);
+                executing.decrementAndGet();
+                return "-FLOOD-";
+            }));
+        }
+        Assert.assertTrue(executor.getQueueDepth("flood") > 10);
+
+        // not waiting behind the flood
+        TaskFuture<String> other = executor.submitToGroup("other", () -> "-OTHER-");
+        Assert.assertEquals("-OTHER-", other.waitFor());
+        int floodDone = 0;
+        for (TaskFuture<String> taskFuture : flood) {
+            floodDone += taskFuture.isDone() ? 1 : 0;
+        }
+        logger.info(String.format("Other group done after %s flood tasks", floodDone));
+        Assert.assertTrue(floodDone < 10);
+
+        for (TaskFuture<String> taskFuture : flood) {
+            Assert.assertEquals("-FLOOD-", taskFuture.waitFor());
+        }
+        Assert.assertEquals(1, maxExecuting.get());
+
+        executor.stop();
+    }
+}
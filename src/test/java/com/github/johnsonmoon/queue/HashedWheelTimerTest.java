@@ -0,0 +1,100 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 11:26.
+ */
+public class HashedWheelTimerTest {
+    private static Logger logger = LoggerFactory.getLogger(HashedWheelTimerTest.class);
+
+    @Test
+    public void expireAndCancelTest() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, 64, "timer-test");
+        int count = 100_000;
+        AtomicInteger fired = new AtomicInteger(0);
+        CountDownLatch countDownLatch = new CountDownLatch(count / 2);
+
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // delays spread over more than one round of the wheel
+            timeouts.add(timer.schedule(() -> {
+                fired.incrementAndGet();
+                countDownLatch.countDown();
+            }, 500 + i % 200, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < count; i += 2) {
+            Assert.assertTrue(timeouts.get(i).cancel());
+        }
+        Assert.assertEquals(count / 2, timer.getPendingTimeouts());
+
+        Assert.assertTrue(countDownLatch.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(count / 2, fired.get());
+        Assert.assertEquals(0, timer.getPendingTimeouts());
+        Assert.assertFalse(timeouts.get(0).cancel());
+        Assert.assertTrue(timeouts.get(1).isExpired());
+        logger.info(String.format("tick lag: %s ms, max tick lag: %s ms", timer.getTickLag(), timer.getMaxTickLag()));
+
+        timer.stop();
+    }
+
+    @Test
+    public void delayTest() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(10, 8, "timer-test");
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(countDownLatch::countDown, 300, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(countDownLatch.await(2, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("elapsed: " + elapsed, elapsed >= 290);
+
+        timer.stop();
+        try {
+            timer.schedule(() -> {
+            }, 1, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void stopTest() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(10, 8, "timer-stop-test");
+        AtomicInteger fired = new AtomicInteger(0);
+        HashedWheelTimer.Timeout expired = timer.schedule(fired::incrementAndGet, 1, TimeUnit.HOURS);
+        HashedWheelTimer.Timeout cancelled = timer.schedule(fired::incrementAndGet, 1, TimeUnit.HOURS, false);
+        Thread.sleep(50);
+
+        // pending timeouts do not keep the worker thread alive
+        timer.stop();
+        for (int i = 0; i < 100 && workerAlive("timer-stop-test"); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(workerAlive("timer-stop-test"));
+        Assert.assertTrue(expired.isExpired());
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertEquals(1, fired.get());
+        Assert.assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    private static boolean workerAlive(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
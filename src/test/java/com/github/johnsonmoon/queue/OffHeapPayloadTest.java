@@ -0,0 +1,96 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 22:20.
+ */
+public class OffHeapPayloadTest {
+    private static Logger logger = LoggerFactory.getLogger(OffHeapPayloadTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static class PayloadTask implements SimpleTask<String>, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final byte[] payload;
+        private final String name;
+
+        private PayloadTask(String name, int size) {
+            this.name = name;
+            this.payload = new byte[size];
+        }
+
+        @Override
+        public String execute() {
+            return name + "-" + payload.length;
+        }
+    }
+
+    @Test
+    public void arenaTest() {
+        OffHeapArena arena = new OffHeapArena(1024, 2048);
+        ByteBuffer small = arena.store(new byte[]{1, 2, 3}, 1, 2);
+        Assert.assertEquals(2, small.remaining());
+        Assert.assertEquals(2, small.get(0));
+        Assert.assertEquals(OffHeapArena.MIN_SLOT_SIZE, small.capacity());
+        Assert.assertEquals(200, arena.store(new byte[200], 0, 200).remaining());
+        Assert.assertEquals(OffHeapArena.MIN_SLOT_SIZE + 256, arena.getUsed());
+
+        // a freed slot is reused by the next payload of its size
+        arena.free(small);
+        Assert.assertSame(small, arena.store(new byte[10], 0, 10));
+        Assert.assertNull(arena.store(new byte[2048], 0, 2048));
+
+        Assert.assertNotNull(arena.store(new byte[1024], 0, 1024));
+        Assert.assertEquals(2048, arena.getAllocated());
+        // out of capacity
+        Assert.assertNull(arena.store(new byte[1024], 0, 1024));
+    }
+
+    @Test
+    public void executorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .offHeapPayloads(true)
+                .start();
+
+        TaskFuture<String> blocking = executor.submit(() -> {
+            sleep(200);
+            return "blocking";
+        });
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            taskFutures.add(executor.submit(new PayloadTask("task-" + i, 10_000)));
+        }
+        // not serializable, kept on heap
+        Assert.assertFalse(blocking.getTask() instanceof OffHeapTask);
+        Assert.assertTrue(taskFutures.get(99).getTask() instanceof OffHeapTask);
+        TaskFuture<String> canceled = taskFutures.get(50);
+        canceled.cancel(false);
+
+        for (int i = 0; i < 100; i++) {
+            if (i != 50) {
+                Assert.assertEquals("task-" + i + "-10000", taskFutures.get(i).waitFor());
+                Assert.assertTrue(taskFutures.get(i).getTask() instanceof PayloadTask);
+            }
+        }
+        Assert.assertEquals("blocking", blocking.waitFor());
+        Assert.assertEquals(TaskStatus.CANCELED, canceled.getTaskStatus());
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 23:30.
+ */
+public class OrderedTaskTest {
+    private static Logger logger = LoggerFactory.getLogger(OrderedTaskTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void orderTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(4)
+                .taskMaxCount(8)
+                .start();
+
+        List<List<Integer>> executed = new ArrayList<>();
+        List<AtomicInteger> executing = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        AtomicInteger overlapped = new AtomicInteger(0);
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int key = 0; key < 10; key++) {
+            executed.add(Collections.synchronizedList(new ArrayList<>()));
+            executing.add(new AtomicInteger(0));
+        }
+        for (int i = 0; i < 50; i++) {
+            for (int key = 0; key < 10; key++) {
+                final int num = i;
+                final int k = key;
+                taskFutures.add(executor.submitOrdered("account-" + key, () -> {
+                    // tasks of one key never overlap
+                    if (executing.get(k).incrementAndGet() > 1) {
+                        overlapped.incrementAndGet();
+                    }
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    if (num == 10) {
+                        executing.get(k).decrementAndGet();
+                        running.decrementAndGet();
+                        throw new IllegalStateException("-FAILED-");
+                    }
+                    sleep(ThreadLocalRandom.current().nextInt(3));
+                    executed.get(k).add(num);
+                    running.decrementAndGet();
+                    executing.get(k).decrementAndGet();
+                    return "-DONE-";
+                }));
+            }
+        }
+        for (TaskFuture<String> taskFuture : taskFutures) {
+            taskFuture.waitFor();
+        }
+        for (int key = 0; key < 10; key++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                if (i != 10) {
+                    expected.add(i);
+                }
+            }
+            // a failed task does not stop the following ones
+            Assert.assertEquals(expected, executed.get(key));
+        }
+        Assert.assertEquals(0, overlapped.get());
+        logger.info(String.format("Max running tasks: %s", maxRunning.get()));
+        Assert.assertTrue(maxRunning.get() > 1);
+        for (int i = 0; i < 100 && executor.getOrderedKeyCount() > 0; i++) {
+            sleep(10);
+        }
+        Assert.assertEquals(0, executor.getOrderedKeyCount());
+
+        executor.stop();
+    }
+
+    @Test
+    public void cancelTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .start();
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        TaskFuture<String> first = executor.submitOrdered("key", () -> {
+            sleep(100);
+            order.add("first");
+            return "first";
+        });
+        TaskFuture<String> second = executor.submitOrdered("key", () -> {
+            order.add("second");
+            return "second";
+        });
+        TaskFuture<String> third = executor.submitOrdered("key", () -> {
+            order.add("third");
+            return "third";
+        });
+        Assert.assertEquals(TaskStatus.WAITING, second.getTaskStatus());
+        second.cancel(false);
+        Assert.assertEquals("third", third.waitFor());
+        Assert.assertEquals("first", first.exitValue());
+        Assert.assertEquals("[first, third]", order.toString());
+
+        executor.stop();
+    }
+}
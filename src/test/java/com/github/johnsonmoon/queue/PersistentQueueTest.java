@@ -0,0 +1,201 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 21:10.
+ */
+public class PersistentQueueTest {
+    private static Logger logger = LoggerFactory.getLogger(PersistentQueueTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static class NamedTask implements SimpleTask<String>, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final long sleep;
+
+        private NamedTask(String name, long sleep) {
+            this.name = name;
+            this.sleep = sleep;
+        }
+
+        @Override
+        public String execute() {
+            sleep(sleep);
+            return name;
+        }
+    }
+
+    @Test
+    public void orderedRecoverTest() throws Exception {
+        String directory = folder.newFolder().getAbsolutePath();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .persistentQueue(directory)
+                .start();
+        executor.submitOrdered("key", new NamedTask("blocking", 500));
+        for (int i = 0; i < 3; i++) {
+            executor.submitOrdered("key", new NamedTask("following-" + i, 0));
+        }
+        sleep(100);
+        // tasks following in the chain are logged when submitted, not when put into the queue
+        executor.stop();
+
+        executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .persistentQueue(directory)
+                .start();
+        List<String> results = executor.getRecoveredTasks().waitForAll();
+        logger.info(String.format("Recovered results: %s", results));
+        Assert.assertEquals("[blocking, following-0, following-1, following-2]", results.toString());
+        sleep(100);
+        executor.stop();
+    }
+
+    @Test
+    public void recoverTest() throws Exception {
+        String directory = folder.newFolder().getAbsolutePath();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .persistentQueue(directory)
+                .start();
+        Assert.assertEquals(0, executor.getRecoveredTasks().getTaskFutures().size());
+        Assert.assertEquals("-DONE-", executor.submit(new NamedTask("-DONE-", 0)).waitFor());
+        executor.submit(new NamedTask("blocking", 500));
+        for (int i = 0; i < 5; i++) {
+            executor.submit(new NamedTask("task-" + i, 0));
+        }
+        sleep(100);
+        // the executing task and the waiting tasks are not done when stopped
+        executor.stop();
+
+        executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .persistentQueue(directory)
+                .start();
+        List<String> results = executor.getRecoveredTasks().waitForAll();
+        logger.info(String.format("Recovered results: %s", results));
+        Assert.assertEquals("[blocking, task-0, task-1, task-2, task-3, task-4]", results.toString());
+        // the DONE record is appended right after the task future completes
+        sleep(100);
+        executor.stop();
+
+        executor = new QueueTaskExecutor<String>()
+                .persistentQueue(directory)
+                .start();
+        Assert.assertEquals(0, executor.getRecoveredTasks().getTaskFutures().size());
+        executor.stop();
+    }
+
+    @Test
+    public void segmentTest() throws Exception {
+        File directory = folder.newFolder();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(4)
+                .persistentQueue(directory.getAbsolutePath())
+                .logSegmentSize(4096)
+                .start();
+
+        List<SimpleTask<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            tasks.add(new NamedTask("task-" + i, 0));
+        }
+        Assert.assertTrue(executor.submitAll(tasks).waitForAll(10_000));
+        for (int i = 0; i < 200; i++) {
+            executor.submit(new NamedTask("task-" + i, 0));
+        }
+        // segments whose tasks are all done are deleted by the flusher
+        for (int i = 0; i < 100 && directory.list().length > 1; i++) {
+            sleep(10);
+        }
+        logger.info(String.format("Segments left: %s", directory.list().length));
+        Assert.assertTrue(directory.list().length <= 2);
+        executor.stop();
+    }
+
+    @Test
+    public void compactTest() throws Exception {
+        File directory = folder.newFolder();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .persistentQueue(directory.getAbsolutePath())
+                .logSegmentSize(4096)
+                .start();
+
+        TaskFuture<String> stuck = executor.submit(new NamedTask("stuck", 1_500));
+        List<SimpleTask<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            tasks.add(new NamedTask("task-" + i, 0));
+        }
+        Assert.assertTrue(executor.submitAll(tasks).waitForAll(10_000));
+        // the stuck task is copied forward, not pinning the segments after its own
+        for (int i = 0; i < 100 && directory.list().length > 2; i++) {
+            sleep(10);
+        }
+        logger.info(String.format("Segments left: %s", directory.list().length));
+        Assert.assertTrue(directory.list().length <= 2);
+        Assert.assertFalse(stuck.isDone());
+        executor.stop();
+
+        executor = new QueueTaskExecutor<String>()
+                .persistentQueue(directory.getAbsolutePath())
+                .start();
+        // replayed once whatever copies are left
+        Assert.assertEquals("[stuck]", executor.getRecoveredTasks().waitForAll().toString());
+        executor.stop();
+    }
+
+    @Test
+    public void doneSegmentRestartTest() throws Exception {
+        File directory = folder.newFolder();
+        TaskLog taskLog = new TaskLog(directory, 1024);
+        // two records fill a segment, the DONE record of the second task goes to the next one
+        long first = taskLog.appendSubmit(new byte[495]);
+        long second = taskLog.appendSubmit(new byte[495]);
+        taskLog.appendDone(second, TaskStatus.COMPLETED);
+        taskLog.close();
+
+        // the segment holding only the DONE record is kept while the older one has a live task
+        for (int i = 0; i < 2; i++) {
+            taskLog = new TaskLog(directory, 1024);
+            List<Long> replayed = new ArrayList<>();
+            for (TaskLog.Record record : taskLog.getReplayed()) {
+                replayed.add(record.sequence);
+            }
+            Assert.assertEquals(String.format("[%s]", first), replayed.toString());
+            taskLog.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notSerializableTest() throws Exception {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .persistentQueue(folder.newFolder().getAbsolutePath())
+                .start();
+        try {
+            executor.submit(() -> "-DONE-");
+        } finally {
+            executor.stop();
+        }
+    }
+}
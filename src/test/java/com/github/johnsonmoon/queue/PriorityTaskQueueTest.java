@@ -0,0 +1,95 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 15:02.
+ */
+public class PriorityTaskQueueTest {
+    private static Logger logger = LoggerFactory.getLogger(PriorityTaskQueueTest.class);
+
+    private static TaskFuture<String> taskFuture(String name, int priority) {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> name);
+        taskFuture.setPriority(priority);
+        // stamped by the executor before putting
+        taskFuture.setEnqueueTime(System.nanoTime());
+        return taskFuture;
+    }
+
+    @Test
+    public void priorityTest() throws Exception {
+        PriorityTaskQueue<String> queue = new PriorityTaskQueue<>(10, 3, 0);
+        queue.put(taskFuture("low-1", 0));
+        queue.put(taskFuture("high-1", 2));
+        queue.put(taskFuture("normal-1", 1));
+        queue.put(taskFuture("high-2", 2));
+        queue.put(taskFuture("low-2", 0));
+
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(2, queue.size(0));
+        Assert.assertEquals(1, queue.size(1));
+        Assert.assertEquals(2, queue.size(2));
+
+        List<String> order = new ArrayList<>();
+        while (queue.size() > 0) {
+            order.add(queue.take().getTask().execute());
+        }
+        logger.info(String.format("Taken order: %s", order));
+        Assert.assertEquals("[high-1, high-2, normal-1, low-1, low-2]", order.toString());
+    }
+
+    @Test
+    public void agingTest() throws Exception {
+        PriorityTaskQueue<String> queue = new PriorityTaskQueue<>(10, 3, 100);
+        queue.put(taskFuture("low", 0));
+        Thread.sleep(250);
+        queue.put(taskFuture("high", 2));
+
+        // the low priority task has waited two aging times and reached the top level earlier
+        Assert.assertEquals("low", queue.take().getTask().execute());
+        Assert.assertEquals("high", queue.take().getTask().execute());
+    }
+
+    @Test
+    public void executorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .priorityLevels(3)
+                .priorityAgingTime(0)
+                .start();
+
+        List<String> order = new ArrayList<>();
+        TaskFuture<String> blocking = executor.submit(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (Exception e) {
+                logger.debug(e.getMessage());
+            }
+            return "blocking";
+        });
+        for (int i = 0; i < 3; i++) {
+            final String name = "bulk-" + i;
+            executor.submitWithPriority(() -> {
+                order.add(name);
+                return name;
+            }, 0);
+        }
+        TaskFuture<String> urgent = executor.submitWithPriority(() -> {
+            order.add("urgent");
+            return "urgent";
+        }, 2);
+        Assert.assertEquals(1, executor.getQueueDepth(2));
+
+        blocking.waitFor();
+        urgent.waitFor();
+        Assert.assertEquals("urgent", order.get(0));
+
+        executor.stop();
+    }
+}
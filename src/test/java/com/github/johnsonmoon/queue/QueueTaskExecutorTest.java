@@ -0,0 +1,154 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 10:20.
+ */
+public class QueueTaskExecutorTest {
+    private static Logger logger = LoggerFactory.getLogger(QueueTaskExecutorTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void completeTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .taskMaxCount(100)
+                .start();
+
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int num = i;
+            taskFutures.add(executor.submit(() -> "-DONE-" + num));
+        }
+        for (int i = 0; i < 20; i++) {
+            TaskFuture<String> taskFuture = taskFutures.get(i);
+            Assert.assertEquals("-DONE-" + i, taskFuture.waitFor());
+            Assert.assertEquals(TaskStatus.COMPLETED, taskFuture.getTaskStatus());
+        }
+        // the executor thread holds one count while it is waiting for the next task,
+        // the last worker releases its count just after the task future is completed
+        for (int i = 0; i < 100 && executor.getTaskLatch().getExecutingCount() > 1; i++) {
+            sleep(10);
+        }
+        Assert.assertTrue(executor.getTaskLatch().getExecutingCount() <= 1);
+
+        executor.stop();
+    }
+
+    @Test
+    public void timeoutTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .start();
+
+        TaskFuture<String> taskFuture = executor.submit(() -> {
+            sleep(5_000);
+            return "-DONE-";
+        }, 200L);
+        Assert.assertNull(taskFuture.waitFor());
+        Assert.assertEquals(TaskStatus.TIMEOUT, taskFuture.getTaskStatus());
+
+        // the worker was interrupted, so the only slot is free again
+        TaskFuture<String> next = executor.submit(() -> "-NEXT-");
+        Assert.assertEquals("-NEXT-", next.waitFor());
+
+        executor.stop();
+    }
+
+    @Test
+    public void errorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .start();
+
+        TaskFuture<String> taskFuture = executor.submit(() -> {
+            throw new IllegalStateException("-FAILED-");
+        });
+        Assert.assertNull(taskFuture.waitFor());
+        Assert.assertEquals(TaskStatus.ERROR, taskFuture.getTaskStatus());
+
+        executor.stop();
+    }
+
+    @Test
+    public void cancelTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .start();
+
+        TaskFuture<String> executing = executor.submit(() -> {
+            sleep(5_000);
+            return "-DONE-";
+        });
+        TaskFuture<String> waiting = executor.submit(() -> "-WAITING-");
+        sleep(100);
+
+        Assert.assertTrue(waiting.cancel(true));
+        Assert.assertTrue(executing.cancel(true));
+        Assert.assertEquals(TaskStatus.CANCELED, waiting.getTaskStatus());
+        Assert.assertEquals(TaskStatus.CANCELED, executing.getTaskStatus());
+        Assert.assertFalse(executing.cancel(true));
+
+        TaskFuture<String> next = executor.submit(() -> "-NEXT-");
+        Assert.assertEquals("-NEXT-", next.waitFor());
+
+        executor.stop();
+    }
+
+    @Test
+    public void virtualThreadsTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .virtualThreads(true)
+                .taskConcurrenceCount(100)
+                .taskMaxCount(1000)
+                .start();
+
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            taskFutures.add(executor.submit(new Task<String>() {
+                private String prefix;
+
+                @Override
+                public void before() {
+                    prefix = "-DONE-";
+                }
+
+                @Override
+                public String execute() {
+                    sleep(50);
+                    return prefix;
+                }
+
+                @Override
+                public void after(String s) {
+                }
+            }));
+        }
+        for (TaskFuture<String> taskFuture : taskFutures) {
+            Assert.assertEquals("-DONE-", taskFuture.waitFor());
+        }
+
+        TaskFuture<String> timeout = executor.submit(() -> {
+            sleep(5_000);
+            return "-DONE-";
+        }, 100L);
+        Assert.assertNull(timeout.waitFor());
+        Assert.assertEquals(TaskStatus.TIMEOUT, timeout.getTaskStatus());
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create by johnsonmoon at 2026/10/19 01:20.
+ */
+public class RateLimitTest {
+    private static Logger logger = LoggerFactory.getLogger(RateLimitTest.class);
+
+    private static class ApiCall implements RateLimitedTask<Long> {
+        private final String account;
+
+        private ApiCall(String account) {
+            this.account = account;
+        }
+
+        @Override
+        public Object rateLimitKey() {
+            return account;
+        }
+
+        @Override
+        public Long execute() {
+            return System.nanoTime();
+        }
+    }
+
+    private static class BulkCall extends ApiCall {
+        private BulkCall(String account) {
+            super(account);
+        }
+    }
+
+    @Test
+    public void gcraTest() {
+        RateLimit smooth = new RateLimit(10, 1);
+        RateLimit bursty = new RateLimit(10, 3);
+        long now = System.nanoTime();
+        Assert.assertEquals(0L, smooth.reserve(now));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), smooth.reserve(now));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(200), smooth.reserve(now));
+        Assert.assertFalse(smooth.tryAcquire());
+
+        Assert.assertEquals(0L, bursty.reserve(now));
+        Assert.assertEquals(0L, bursty.reserve(now));
+        Assert.assertEquals(0L, bursty.reserve(now));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bursty.reserve(now));
+        // refilled after idling
+        Assert.assertTrue(bursty.isIdle(now + TimeUnit.MILLISECONDS.toNanos(400)));
+    }
+
+    @Test
+    public void classRateLimitTest() {
+        QueueTaskExecutor<Long> executor = new QueueTaskExecutor<Long>()
+                .taskConcurrenceCount(1)
+                .rateLimit(ApiCall.class, new RateLimit(10, 1))
+                .start();
+
+        long start = System.nanoTime();
+        List<TaskFuture<Long>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(executor.submit(new ApiCall("a")));
+        }
+        // tasks waiting for permits hold no slot, an unlimited task passes them
+        TaskFuture<Long> other = executor.submit(System::nanoTime);
+        Assert.assertTrue(other.waitFor() - start < TimeUnit.MILLISECONDS.toNanos(100));
+
+        long previous = 0L;
+        for (TaskFuture<Long> call : calls) {
+            long time = call.waitFor();
+            if (previous != 0L) {
+                logger.info(String.format("Call after %s ms", TimeUnit.NANOSECONDS.toMillis(time - previous)));
+                // tick precision of the timer
+                Assert.assertTrue(time - previous > TimeUnit.MILLISECONDS.toNanos(80));
+            }
+            previous = time;
+        }
+        Assert.assertEquals(0, executor.getQueueDepth());
+
+        executor.stop();
+    }
+
+    @Test
+    public void keyRateLimitTest() {
+        QueueTaskExecutor<Long> executor = new QueueTaskExecutor<Long>()
+                .taskConcurrenceCount(2)
+                .keyRateLimit(10D, 1)
+                .rateLimit(new RateLimit(1_000, 10))
+                .start();
+
+        long start = System.nanoTime();
+        List<TaskFuture<Long>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(executor.submit(new ApiCall("a")));
+            calls.add(executor.submit(new ApiCall("b")));
+        }
+        for (TaskFuture<Long> call : calls) {
+            call.waitFor();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info(String.format("8 calls of 2 keys done in %s ms", elapsed));
+        // keys are limited apart, 4 calls of a key take 300 ms
+        Assert.assertTrue(elapsed >= 280 && elapsed < 600);
+
+        executor.stop();
+    }
+
+    @Test
+    public void keyOrderTest() {
+        QueueTaskExecutor<Long> executor = new QueueTaskExecutor<Long>()
+                .taskConcurrenceCount(1)
+                .keyRateLimit(1_000D, 100)
+                .rateLimit(BulkCall.class, new RateLimit(10, 1))
+                .start();
+
+        List<TaskFuture<Long>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(executor.submit(new BulkCall("a")));
+            calls.add(executor.submit(new ApiCall("a")));
+        }
+        // calls due now wait behind the calls of their key waiting for permits
+        long previous = 0L;
+        for (TaskFuture<Long> call : calls) {
+            long time = call.waitFor();
+            Assert.assertTrue(time - previous > 0L);
+            previous = time;
+        }
+
+        executor.stop();
+    }
+
+    @Test
+    public void deferredFullTest() {
+        QueueTaskExecutor<Long> executor = new QueueTaskExecutor<Long>()
+                .taskConcurrenceCount(1)
+                .taskMaxCount(2)
+                .keyRateLimit(5D, 1)
+                .start();
+
+        List<TaskFuture<Long>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(executor.submit(new ApiCall("a")));
+        }
+        // the executor thread never waits for permits, submitting waits while taskMaxCount tasks are deferred
+        TaskFuture<Long> other = executor.submit(System::nanoTime);
+        long start = System.nanoTime();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(other.waitFor() - start);
+        logger.info(String.format("Unlimited task done in %s ms", elapsed));
+        Assert.assertTrue(elapsed < 100);
+        for (TaskFuture<Long> call : calls) {
+            Assert.assertNotNull(call.waitFor());
+        }
+
+        executor.stop();
+    }
+}
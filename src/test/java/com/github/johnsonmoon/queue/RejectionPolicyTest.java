@@ -0,0 +1,123 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 17:30.
+ */
+public class RejectionPolicyTest {
+    private static Logger logger = LoggerFactory.getLogger(RejectionPolicyTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    /**
+     * Executor with one busy slot and a full queue of two tasks.
+     */
+    private static QueueTaskExecutor<String> fullExecutor(QueueTaskExecutor<String> executor) {
+        executor.taskConcurrenceCount(1)
+                .taskMaxCount(2)
+                .start();
+        executor.submit(() -> {
+            sleep(300);
+            return "-BUSY-";
+        });
+        // let the executor take the busy task, so the following ones stay in the queue
+        sleep(50);
+        return executor;
+    }
+
+    @Test
+    public void failFastTest() {
+        QueueTaskExecutor<String> executor = fullExecutor(new QueueTaskExecutor<String>()
+                .rejectionPolicy(RejectionPolicy.FAIL_FAST));
+        TaskFuture<String> first = executor.submit(() -> "-FIRST-");
+        executor.submit(() -> "-SECOND-");
+
+        long start = System.currentTimeMillis();
+        TaskFuture<String> rejected = executor.submit(() -> "-REJECTED-");
+        Assert.assertTrue(System.currentTimeMillis() - start < 100);
+        Assert.assertEquals(TaskStatus.REJECTED, rejected.getTaskStatus());
+        Assert.assertNull(rejected.waitFor());
+        Assert.assertEquals("-FIRST-", first.waitFor());
+
+        executor.stop();
+    }
+
+    @Test
+    public void blockWithTimeoutTest() {
+        QueueTaskExecutor<String> executor = fullExecutor(new QueueTaskExecutor<String>()
+                .rejectionPolicy(RejectionPolicy.BLOCK_WITH_TIMEOUT)
+                .submitTimeout(100));
+        executor.submit(() -> "-FIRST-");
+        executor.submit(() -> "-SECOND-");
+
+        long start = System.currentTimeMillis();
+        TaskFuture<String> rejected = executor.submit(() -> "-REJECTED-");
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue(elapsed >= 90 && elapsed < 250);
+        Assert.assertEquals(TaskStatus.REJECTED, rejected.getTaskStatus());
+
+        // trySubmit never waits, whatever the policy
+        Assert.assertEquals(TaskStatus.REJECTED, executor.trySubmit(() -> "-TRY-").getTaskStatus());
+
+        executor.stop();
+    }
+
+    @Test
+    public void callerRunsTest() {
+        QueueTaskExecutor<String> executor = fullExecutor(new QueueTaskExecutor<String>()
+                .rejectionPolicy(RejectionPolicy.CALLER_RUNS));
+        executor.submit(() -> "-FIRST-");
+        executor.submit(() -> "-SECOND-");
+
+        TaskFuture<String> callerRuns = executor.submit(() -> Thread.currentThread().getName());
+        Assert.assertEquals(TaskStatus.COMPLETED, callerRuns.getTaskStatus());
+        Assert.assertEquals(Thread.currentThread().getName(), callerRuns.exitValue());
+
+        executor.stop();
+    }
+
+    @Test
+    public void dropOldestTest() {
+        QueueTaskExecutor<String> executor = fullExecutor(new QueueTaskExecutor<String>()
+                .rejectionPolicy(RejectionPolicy.DROP_OLDEST));
+        TaskFuture<String> oldest = executor.submit(() -> "-OLDEST-");
+        TaskFuture<String> second = executor.submit(() -> "-SECOND-");
+        TaskFuture<String> newest = executor.submit(() -> "-NEWEST-");
+
+        Assert.assertEquals(TaskStatus.REJECTED, oldest.getTaskStatus());
+        Assert.assertEquals("-SECOND-", second.waitFor());
+        Assert.assertEquals("-NEWEST-", newest.waitFor());
+
+        executor.stop();
+    }
+
+    @Test
+    public void dropLowestPriorityTest() {
+        QueueTaskExecutor<String> executor = fullExecutor(new QueueTaskExecutor<String>()
+                .rejectionPolicy(RejectionPolicy.DROP_LOWEST_PRIORITY)
+                .priorityLevels(3));
+        TaskFuture<String> low = executor.submitWithPriority(() -> "-LOW-", 0);
+        TaskFuture<String> normal = executor.submitWithPriority(() -> "-NORMAL-", 1);
+
+        TaskFuture<String> high = executor.submitWithPriority(() -> "-HIGH-", 2);
+        Assert.assertEquals(TaskStatus.REJECTED, low.getTaskStatus());
+        // no waiting task is lower than this one
+        TaskFuture<String> lowest = executor.submitWithPriority(() -> "-LOWEST-", 0);
+        Assert.assertEquals(TaskStatus.REJECTED, lowest.getTaskStatus());
+
+        Assert.assertEquals("-HIGH-", high.waitFor());
+        Assert.assertEquals("-NORMAL-", normal.waitFor());
+
+        executor.stop();
+    }
+}
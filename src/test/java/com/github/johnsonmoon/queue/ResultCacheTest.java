@@ -0,0 +1,121 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/19 00:40.
+ */
+public class ResultCacheTest {
+    private static Logger logger = LoggerFactory.getLogger(ResultCacheTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static class ReportTask implements CacheableTask<String> {
+        private final String key;
+        private final AtomicInteger executions;
+        private final long sleep;
+        private final boolean fail;
+
+        private ReportTask(String key, AtomicInteger executions, long sleep, boolean fail) {
+            this.key = key;
+            this.executions = executions;
+            this.sleep = sleep;
+            this.fail = fail;
+        }
+
+        @Override
+        public Object cacheKey() {
+            return key;
+        }
+
+        @Override
+        public String execute() {
+            executions.incrementAndGet();
+            sleep(sleep);
+            if (fail) {
+                throw new IllegalStateException("-FAILED-");
+            }
+            return "report-" + key;
+        }
+    }
+
+    @Test
+    public void singleFlightTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .resultCacheSize(100)
+                .start();
+
+        AtomicInteger executions = new AtomicInteger(0);
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            taskFutures.add(executor.submit(new ReportTask("a", executions, 100, false)));
+        }
+        for (TaskFuture<String> taskFuture : taskFutures) {
+            Assert.assertSame(taskFutures.get(0), taskFuture);
+            Assert.assertEquals("report-a", taskFuture.waitFor());
+        }
+        TaskFuture<String> cached = executor.submit(new ReportTask("a", executions, 100, false));
+        Assert.assertTrue(cached.isDone());
+        Assert.assertEquals("report-a", cached.exitValue());
+        Assert.assertEquals(1, executions.get());
+
+        ResultCache<String> resultCache = executor.getResultCache();
+        Assert.assertEquals(10, resultCache.getHitCount());
+        Assert.assertEquals(1, resultCache.getMissCount());
+
+        // failures are not cached
+        AtomicInteger failures = new AtomicInteger(0);
+        Assert.assertNull(executor.submit(new ReportTask("b", failures, 0, true)).waitFor());
+        Assert.assertNull(executor.submit(new ReportTask("b", failures, 0, true)).waitFor());
+        Assert.assertEquals(2, failures.get());
+
+        executor.stop();
+    }
+
+    @Test
+    public void evictionTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .resultCacheSize(2)
+                .resultCacheTtl(200)
+                .start();
+
+        AtomicInteger executions = new AtomicInteger(0);
+        executor.submit(new ReportTask("a", executions, 0, false)).waitFor();
+        executor.submit(new ReportTask("b", executions, 0, false)).waitFor();
+        executor.submit(new ReportTask("a", executions, 0, false)).waitFor();
+        // b is the least recently used
+        executor.submit(new ReportTask("c", executions, 0, false)).waitFor();
+        Assert.assertEquals(3, executions.get());
+        executor.submit(new ReportTask("a", executions, 0, false)).waitFor();
+        Assert.assertEquals(3, executions.get());
+        executor.submit(new ReportTask("b", executions, 0, false)).waitFor();
+        Assert.assertEquals(4, executions.get());
+
+        sleep(300);
+        executor.submit(new ReportTask("b", executions, 0, false)).waitFor();
+        Assert.assertEquals(5, executions.get());
+
+        ResultCache<String> resultCache = executor.getResultCache();
+        logger.info(String.format("Hits: %s, misses: %s, evictions: %s", resultCache.getHitCount(),
+                resultCache.getMissCount(), resultCache.getEvictionCount()));
+        Assert.assertEquals(2, resultCache.getHitCount());
+        Assert.assertEquals(5, resultCache.getMissCount());
+        // b and c by size, b by TTL
+        Assert.assertEquals(3, resultCache.getEvictionCount());
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/19 02:00.
+ */
+public class RetryPolicyTest {
+    private static Logger logger = LoggerFactory.getLogger(RetryPolicyTest.class);
+
+    @Test
+    public void backoffTest() {
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .initialBackoff(100)
+                .maxBackoff(300)
+                .jitter(0D);
+        Assert.assertEquals(100, retryPolicy.backoff(1));
+        Assert.assertEquals(200, retryPolicy.backoff(2));
+        Assert.assertEquals(300, retryPolicy.backoff(3));
+
+        retryPolicy.jitter(0.5D);
+        for (int i = 0; i < 100; i++) {
+            long backoff = retryPolicy.backoff(1);
+            Assert.assertTrue(backoff >= 50 && backoff <= 100);
+        }
+    }
+
+    @Test
+    public void retryTest() throws Exception {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .retryPolicy(new RetryPolicy()
+                        .maxAttempts(3)
+                        .initialBackoff(200)
+                        .retryOn(e -> e instanceof IllegalStateException))
+                .start();
+
+        AtomicInteger calls = new AtomicInteger(0);
+        long start = System.nanoTime();
+        TaskFuture<String> flaky = executor.submit(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("-FAILED-" + calls.get());
+            }
+            return "-DONE-";
+        });
+        // the backoff holds no thread, other tasks run meanwhile
+        Assert.assertEquals("-OTHER-", executor.submit(() -> "-OTHER-").waitFor());
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+
+        Assert.assertEquals("-DONE-", flaky.waitFor());
+        Assert.assertEquals(3, flaky.getAttempts());
+        Assert.assertEquals("-FAILED-2", flaky.getCause().getMessage());
+
+        TaskFuture<String> failing = executor.submit(() -> {
+            throw new IllegalStateException("-ALWAYS-");
+        });
+        try {
+            failing.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TaskException);
+            Assert.assertEquals("-ALWAYS-", e.getCause().getCause().getMessage());
+        }
+        Assert.assertEquals(TaskStatus.ERROR, failing.getTaskStatus());
+        Assert.assertEquals(3, failing.getAttempts());
+
+        // not retryable
+        TaskFuture<String> fatal = executor.submit(() -> {
+            throw new IllegalArgumentException("-FATAL-");
+        });
+        Assert.assertNull(fatal.waitFor());
+        Assert.assertEquals(1, fatal.getAttempts());
+        Assert.assertTrue(fatal.getCause() instanceof IllegalArgumentException);
+
+        executor.stop();
+    }
+
+    @Test
+    public void cancelTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .retryPolicy(new RetryPolicy().initialBackoff(5_000))
+                .start();
+
+        TaskFuture<String> taskFuture = executor.submit(() -> {
+            throw new IllegalStateException("-FAILED-");
+        });
+        while (taskFuture.getAttempts() == 0 || taskFuture.getTaskStatus() != TaskStatus.WAITING) {
+            Thread.yield();
+        }
+        logger.info("Task waiting for retry, cancel it.");
+        Assert.assertTrue(taskFuture.cancel(false));
+        Assert.assertNull(taskFuture.waitFor());
+        Assert.assertEquals(TaskStatus.CANCELED, taskFuture.getTaskStatus());
+        Assert.assertEquals(1, taskFuture.getAttempts());
+
+        executor.stop();
+    }
+
+    @Test
+    public void submittedCountTest() {
+        DefaultTaskMetrics metrics = new DefaultTaskMetrics();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .rateLimit(new RateLimit(20, 1))
+                .retryPolicy(new RetryPolicy()
+                        .maxAttempts(3)
+                        .initialBackoff(10))
+                .metrics(metrics)
+                .start();
+
+        AtomicInteger calls = new AtomicInteger(0);
+        TaskFuture<String> flaky = executor.submit(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("-FAILED-" + calls.get());
+            }
+            return "-DONE-";
+        });
+        TaskFuture<String> limited = executor.submit(() -> "-DONE-");
+        Assert.assertEquals("-DONE-", flaky.waitFor());
+        Assert.assertEquals("-DONE-", limited.waitFor());
+        // put back after retrying or waiting for permits, not submitted again
+        Assert.assertEquals(2, metrics.getSubmittedCount());
+
+        executor.stop();
+    }
+}
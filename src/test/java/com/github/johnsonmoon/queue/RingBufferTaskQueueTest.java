@@ -0,0 +1,119 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 16:50.
+ */
+public class RingBufferTaskQueueTest {
+    private static Logger logger = LoggerFactory.getLogger(RingBufferTaskQueueTest.class);
+
+    @Test
+    public void offerPollTest() {
+        RingBufferTaskQueue<String> queue = new RingBufferTaskQueue<>(3, WaitStrategy.PARK);
+        for (int i = 0; i < 4; i++) {
+            final String name = "task-" + i;
+            Assert.assertTrue(queue.offer(new TaskFuture<>(() -> name)));
+        }
+        // capacity is rounded up to 4
+        Assert.assertFalse(queue.offer(new TaskFuture<>(() -> "full")));
+        Assert.assertEquals(4, queue.size());
+
+        Assert.assertNull(queue.poll(taskFuture -> false));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("task-" + i, queue.poll(null).getTask().execute());
+        }
+        Assert.assertNull(queue.poll(null));
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        transfer(WaitStrategy.PARK, 3, 2);
+        transfer(WaitStrategy.YIELD, 3, 2);
+        // spinning threads starve each other when there are fewer cores than threads
+        if (Runtime.getRuntime().availableProcessors() >= 2) {
+            transfer(WaitStrategy.BUSY_SPIN, 1, 1);
+        }
+    }
+
+    private void transfer(WaitStrategy waitStrategy, int producerCount, int consumerCount) throws Exception {
+        RingBufferTaskQueue<String> queue = new RingBufferTaskQueue<>(64, waitStrategy);
+        int perProducer = 100_000;
+        Set<String> taken = ConcurrentHashMap.newKeySet();
+        AtomicInteger remaining = new AtomicInteger(producerCount * perProducer);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        final String name = producer + "-" + i;
+                        queue.put(new TaskFuture<>(() -> name));
+                    }
+                } catch (InterruptedException e) {
+                    logger.debug(e.getMessage());
+                }
+            }));
+        }
+        for (int c = 0; c < consumerCount; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (remaining.get() > 0) {
+                        TaskFuture<String> taskFuture = queue.poll(null, 10, TimeUnit.MILLISECONDS);
+                        if (taskFuture != null) {
+                            // every task future is taken exactly once
+                            Assert.assertTrue(taken.add(taskFuture.getTask().execute()));
+                            remaining.decrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    logger.debug(e.getMessage());
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+        logger.info(String.format("%s: %s task futures transferred in %s ms", waitStrategy,
+                producerCount * perProducer, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        Assert.assertEquals(0, remaining.get());
+        Assert.assertEquals(producerCount * perProducer, taken.size());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void executorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(4)
+                .taskMaxCount(16)
+                .waitStrategy(WaitStrategy.PARK)
+                .start();
+
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int num = i;
+            taskFutures.add(executor.submit(() -> "-DONE-" + num));
+        }
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals("-DONE-" + i, taskFutures.get(i).waitFor());
+        }
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 23:00.
+ */
+public class ScheduleTest {
+    private static Logger logger = LoggerFactory.getLogger(ScheduleTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void scheduleTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .start();
+
+        long start = System.nanoTime();
+        TaskFuture<String> taskFuture = executor.schedule(() -> "-DONE-", 200);
+        TaskFuture<String> canceled = executor.schedule(() -> "-CANCELED-", 200);
+        canceled.cancel(false);
+        sleep(100);
+        Assert.assertEquals(TaskStatus.WAITING, taskFuture.getTaskStatus());
+        Assert.assertEquals("-DONE-", taskFuture.waitFor());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info(String.format("Scheduled task done after %s ms", elapsed));
+        Assert.assertTrue(elapsed >= 200);
+        Assert.assertEquals(TaskStatus.CANCELED, canceled.getTaskStatus());
+
+        // not left waiting for the delay after stopped
+        TaskFuture<String> stopped = executor.schedule(() -> "-STOPPED-", TimeUnit.HOURS.toMillis(1));
+        executor.stop();
+        Assert.assertTrue(stopped.waitFor(1_000));
+        Assert.assertEquals(TaskStatus.INTERRUPTED, stopped.getTaskStatus());
+        Assert.assertEquals(0, executor.getTimeoutTimer().getPendingTimeouts());
+    }
+
+    @Test
+    public void fixedRateTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .start();
+
+        AtomicInteger count = new AtomicInteger(0);
+        ScheduledTask<String> scheduledTask = executor.scheduleAtFixedRate(() -> "-DONE-" + count.incrementAndGet(), 0, 100);
+        sleep(550);
+        Assert.assertTrue(scheduledTask.cancel());
+        int fired = count.get();
+        logger.info(String.format("Fired %s times in 550 ms", fired));
+        Assert.assertTrue(fired >= 4 && fired <= 7);
+        Assert.assertEquals(fired, scheduledTask.getFireCount());
+        Assert.assertEquals("-DONE-" + fired, scheduledTask.getLastTaskFuture().waitFor());
+        sleep(300);
+        Assert.assertEquals(fired, count.get());
+
+        // executions of one schedule never overlap
+        ScheduledTask<String> slow = executor.scheduleAtFixedRate(() -> {
+            sleep(250);
+            return "-SLOW-";
+        }, 0, 100);
+        sleep(600);
+        slow.cancel();
+        logger.info(String.format("Slow task fired %s times, skipped %s times", slow.getFireCount(), slow.getSkipCount()));
+        Assert.assertTrue(slow.getFireCount() <= 3);
+        Assert.assertTrue(slow.getSkipCount() > 0);
+
+        executor.stop();
+    }
+
+    @Test
+    public void fixedDelayTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .start();
+
+        ScheduledTask<String> scheduledTask = executor.scheduleWithFixedDelay(() -> {
+            sleep(100);
+            return "-DONE-";
+        }, 0, 100);
+        sleep(1_000);
+        scheduledTask.cancel();
+        logger.info(String.format("Fired %s times in 1000 ms", scheduledTask.getFireCount()));
+        Assert.assertTrue(scheduledTask.getFireCount() >= 3 && scheduledTask.getFireCount() <= 6);
+
+        executor.stop();
+    }
+
+    @Test
+    public void boundedTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .taskMaxCount(10)
+                .start();
+
+        // firings beyond the queue capacity are retried by the timer until accepted
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        AtomicInteger executing = new AtomicInteger(0);
+        AtomicInteger maxExecuting = new AtomicInteger(0);
+        for (int i = 0; i < 100; i++) {
+            final int num = i;
+            taskFutures.add(executor.schedule(() -> {
+                maxExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+                sleep(5);
+                executing.decrementAndGet();
+                return "-DONE-" + num;
+            }, 100));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("-DONE-" + i, taskFutures.get(i).waitFor());
+        }
+        Assert.assertTrue(maxExecuting.get() <= 2);
+
+        executor.stop();
+    }
+}
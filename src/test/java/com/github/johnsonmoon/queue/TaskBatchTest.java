@@ -0,0 +1,77 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 13:30.
+ */
+public class TaskBatchTest {
+    private static Logger logger = LoggerFactory.getLogger(TaskBatchTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    private static List<SimpleTask<String>> tasks(int count, long sleep) {
+        List<SimpleTask<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int num = i;
+            tasks.add(() -> {
+                sleep(sleep * num);
+                return "-DONE-" + num;
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    public void waitForAllTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(4)
+                // smaller than the batch, submitAll blocks until the queue drains
+                .taskMaxCount(10)
+                .start();
+
+        TaskBatch<String> taskBatch = executor.submitAll(tasks(100, 0));
+        List<String> results = taskBatch.waitForAll();
+        Assert.assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("-DONE-" + i, results.get(i));
+        }
+        Assert.assertEquals(100, taskBatch.getDoneCount());
+
+        executor.stop();
+    }
+
+    @Test
+    public void waitForFirstTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(10)
+                .start();
+
+        TaskBatch<String> taskBatch = executor.submitAll(tasks(10, 100));
+        TaskFuture<String> any = taskBatch.waitForAny();
+        Assert.assertEquals("-DONE-0", any.exitValue());
+
+        List<TaskFuture<String>> first = taskBatch.waitForFirst(3);
+        Assert.assertEquals(3, first.size());
+        Assert.assertEquals("-DONE-2", first.get(2).exitValue());
+
+        List<TaskFuture<String>> timeout = taskBatch.waitForFirst(10, 50);
+        Assert.assertTrue(timeout.size() < 10);
+        Assert.assertFalse(taskBatch.waitForAll(50));
+        Assert.assertTrue(taskBatch.waitForAll(5_000));
+
+        executor.stop();
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 12:10.
+ */
+public class TaskFutureTest {
+    private static Logger logger = LoggerFactory.getLogger(TaskFutureTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void wakeUpTest() {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> "-DONE-");
+        taskFuture.setTaskStatus(TaskStatus.EXECUTING);
+        AtomicLong completeTime = new AtomicLong();
+        new Thread(() -> {
+            sleep(200);
+            completeTime.set(System.nanoTime());
+            taskFuture.complete("-DONE-");
+        }).start();
+
+        Assert.assertEquals("-DONE-", taskFuture.waitFor());
+        logger.info(String.format("Woken up %s us after completed", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - completeTime.get())));
+        Assert.assertEquals(TaskStatus.COMPLETED, taskFuture.getTaskStatus());
+        Assert.assertEquals("-DONE-", taskFuture.exitValue());
+    }
+
+    @Test
+    public void waitForTimeoutTest() {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> "-DONE-");
+        taskFuture.setTaskStatus(TaskStatus.EXECUTING);
+
+        Assert.assertFalse(taskFuture.waitFor(100));
+        // an executing task is cancelled when waiting timeout
+        Assert.assertEquals(TaskStatus.CANCELED, taskFuture.getTaskStatus());
+        Assert.assertTrue(taskFuture.waitFor(100));
+    }
+
+    @Test
+    public void waitForTimeoutPruneTest() throws Exception {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> "-DONE-");
+        AtomicReference<String> action = new AtomicReference<>();
+        taskFuture.whenComplete((result, taskStatus) -> action.set(result + taskStatus));
+        AtomicReference<String> waited = new AtomicReference<>();
+        Thread waiter = new Thread(() -> waited.set(taskFuture.waitFor()));
+        waiter.start();
+        Thread interrupted = new Thread(taskFuture::waitFor);
+        interrupted.start();
+        sleep(100);
+        Assert.assertEquals(3, taskFuture.getCompletionCount());
+
+        // a waiting task is not cancelled when waiting timeout, polling again and again must not grow the stack
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(taskFuture.waitFor(1));
+        }
+        Assert.assertEquals(3, taskFuture.getCompletionCount());
+        interrupted.interrupt();
+        interrupted.join(1000L);
+        Assert.assertEquals(2, taskFuture.getCompletionCount());
+
+        taskFuture.setTaskStatus(TaskStatus.EXECUTING);
+        taskFuture.complete("-DONE-");
+        waiter.join(1000L);
+        Assert.assertEquals("-DONE-", waited.get());
+        Assert.assertEquals("-DONE-COMPLETED", action.get());
+        Assert.assertEquals(0, taskFuture.getCompletionCount());
+    }
+
+    @Test
+    public void whenCompleteTest() {
+        TaskFuture<String> taskFuture = new TaskFuture<>(() -> "-DONE-");
+        taskFuture.setTaskStatus(TaskStatus.EXECUTING);
+        AtomicReference<String> before = new AtomicReference<>();
+        taskFuture.whenComplete((result, taskStatus) -> before.set(result + taskStatus));
+
+        taskFuture.complete("-DONE-");
+        Assert.assertEquals("-DONE-COMPLETED", before.get());
+
+        AtomicReference<String> after = new AtomicReference<>();
+        taskFuture.whenComplete((result, taskStatus) -> after.set(result + taskStatus));
+        Assert.assertEquals("-DONE-COMPLETED", after.get());
+    }
+
+    @Test
+    public void completableFutureTest() throws Exception {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .start();
+
+        CompletableFuture<Integer> length = executor.submit(() -> "-DONE-").thenApply(String::length);
+        Assert.assertEquals(Integer.valueOf(6), length.get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> error = executor.submit(() -> {
+            throw new IllegalStateException("-FAILED-");
+        }).toCompletableFuture();
+        try {
+            error.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TaskException);
+            Assert.assertEquals(TaskStatus.ERROR, ((TaskException) e.getCause()).getTaskStatus());
+        }
+
+        TaskFuture<String> taskFuture = executor.submit(() -> {
+            sleep(5_000);
+            return "-DONE-";
+        });
+        CompletableFuture<String> canceled = taskFuture.toCompletableFuture();
+        taskFuture.cancel(true);
+        try {
+            canceled.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (CancellationException e) {
+            logger.debug(e.getMessage());
+        }
+
+        executor.stop();
+    }
+
+    @Test
+    public void errorTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .start();
+
+        // an error thrown by the task turns the task future ERROR, not leaving it executing
+        TaskFuture<String> taskFuture = executor.submit(() -> {
+            throw new AssertionError("-FAILED-");
+        });
+        Assert.assertNull(taskFuture.waitFor());
+        Assert.assertEquals(TaskStatus.ERROR, taskFuture.getTaskStatus());
+        Assert.assertTrue(taskFuture.getCause() instanceof AssertionError);
+
+        executor.stop();
+    }
+
+    @Test
+    public void taskIdTest() {
+        TaskFuture<String> random = new TaskFuture<>(() -> "-DONE-");
+        Assert.assertTrue(random.getTaskId().matches("[0-9a-f]{32}"));
+        Assert.assertEquals(random.getTaskId(), random.getTaskId());
+
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .sequentialTaskIds(true)
+                .start();
+        long first = Long.parseLong(executor.submit(() -> "-DONE-").getTaskId());
+        long second = Long.parseLong(executor.submit(() -> "-DONE-").getTaskId());
+        Assert.assertEquals(first + 1, second);
+        BatchTask<String, String> batchTask = items -> items;
+        Assert.assertEquals(String.valueOf(second + 1), executor.submit(batchTask, "-ITEM-").getTaskId());
+
+        executor.stop();
+    }
+
+    @Test
+    public void recycleTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(2)
+                .taskFuturePoolSize(16)
+                .start();
+
+        Set<TaskFuture<String>> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 1_000; i++) {
+            final int num = i;
+            TaskFuture<String> taskFuture = executor.submit(() -> "-DONE-" + num);
+            Assert.assertEquals("-DONE-" + num, taskFuture.waitFor());
+            instances.add(taskFuture);
+            Assert.assertTrue(executor.recycle(taskFuture));
+        }
+        logger.info(String.format("1000 tasks executed with %s task future instances", instances.size()));
+        Assert.assertTrue(instances.size() < 100);
+
+        // a task future whose timeout fired may still be touched by the timer, so it is not reused
+        TaskFuture<String> timeout = executor.submit(() -> {
+            sleep(5_000);
+            return "-TIMEOUT-";
+        }, 100L);
+        Assert.assertNull(timeout.waitFor());
+        Assert.assertTrue(executor.recycle(timeout));
+        for (int i = 0; i < 20; i++) {
+            TaskFuture<String> taskFuture = executor.submit(() -> "-DONE-");
+            Assert.assertNotSame(timeout, taskFuture);
+            taskFuture.waitFor();
+        }
+        Assert.assertEquals(TaskStatus.TIMEOUT, timeout.getTaskStatus());
+
+        // not done yet, the caller keeps it
+        TaskFuture<String> waiting = executor.submit(() -> {
+            sleep(200);
+            return "-DONE-";
+        });
+        Assert.assertFalse(executor.recycle(waiting));
+
+        executor.stop();
+    }
+}
@@ -1,11 +1,14 @@
 package com.github.johnsonmoon.queue;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Create by johnsonmoon at 2018/11/23 14:48.
@@ -34,6 +37,65 @@ public class TaskLatchTest {
         sleep(10_000);
     }
 
+    @Test
+    public void concurrentTest() throws Exception {
+        int threads = 32;
+        TaskLatch taskLatch = new TaskLatch(4);
+        AtomicInteger executing = new AtomicInteger(0);
+        AtomicInteger maxExecuting = new AtomicInteger(0);
+        CountDownLatch countDownLatch = new CountDownLatch(threads);
+
+        ExecutorService service = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            service.submit(() -> {
+                try {
+                    for (int j = 0; j < 10_000; j++) {
+                        taskLatch.acquireInterruptibly();
+                        maxExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+                        executing.decrementAndGet();
+                        taskLatch.release();
+                    }
+                } catch (Exception e) {
+                    logger.warn(e.getMessage(), e);
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        countDownLatch.await();
+        service.shutdown();
+
+        taskLatch.printAvailableCount();
+        Assert.assertTrue(maxExecuting.get() <= 4);
+        Assert.assertEquals(0, taskLatch.getExecutingCount());
+        Assert.assertEquals(4, taskLatch.getAvailableCount());
+    }
+
+    @Test
+    public void resizeTest() {
+        TaskLatch taskLatch = new TaskLatch(2);
+        Assert.assertTrue(taskLatch.acquire());
+        Assert.assertTrue(taskLatch.acquire());
+        Assert.assertFalse(taskLatch.acquire());
+
+        taskLatch.resize(3);
+        Assert.assertTrue(taskLatch.acquire());
+        Assert.assertEquals(3, taskLatch.getExecutingCount());
+
+        taskLatch.resize(1);
+        taskLatch.release();
+        taskLatch.release();
+        Assert.assertFalse(taskLatch.acquire());
+        taskLatch.release();
+        Assert.assertTrue(taskLatch.acquire());
+        taskLatch.printAvailableCount();
+
+        taskLatch.release();
+        taskLatch.release();
+        Assert.assertEquals(0, taskLatch.getExecutingCount());
+        Assert.assertEquals(1, taskLatch.getAvailableCount());
+    }
+
     private void sleep(int t) {
         try {
             Thread.sleep(t);
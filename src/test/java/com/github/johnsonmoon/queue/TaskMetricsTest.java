@@ -0,0 +1,119 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 19:00.
+ */
+public class TaskMetricsTest {
+    private static Logger logger = LoggerFactory.getLogger(TaskMetricsTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void histogramTest() {
+        for (long value : new long[]{0L, 1L, 15L, 16L, 17L, 1_000L, 123_456_789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(LatencyHistogram.highestOf(index) >= value);
+            Assert.assertTrue(index == 0 || LatencyHistogram.highestOf(index - 1) < value);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        long p50 = histogram.valueAt(50D);
+        long max = histogram.valueAt(100D);
+        Assert.assertTrue(p50 >= 500_000L && p50 < 500_000L * 17 / 16);
+        Assert.assertTrue(max >= 1_000_000L && max < 1_000_000L * 17 / 16);
+    }
+
+    @Test
+    public void pluggedQueueTest() {
+        DefaultTaskMetrics metrics = new DefaultTaskMetrics();
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskQueue(new BlockingTaskQueue<>(10))
+                .metrics(metrics)
+                .start();
+
+        // the enqueue time is stamped by the executor, queues of other packages could not stamp it
+        for (int i = 0; i < 10; i++) {
+            executor.submit(() -> "-DONE-").waitFor();
+        }
+        logger.info(String.format("Queue wait max: %s us", metrics.getQueueWaitMax()));
+        Assert.assertTrue(metrics.getQueueWaitMax() < 1_000_000L);
+
+        executor.stop();
+    }
+
+    @Test
+    public void executorTest() throws Exception {
+        DefaultTaskMetrics metrics = new DefaultTaskMetrics().registerMBean("metrics-test");
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .taskConcurrenceCount(1)
+                .taskMaxCount(2)
+                .rejectionPolicy(RejectionPolicy.FAIL_FAST)
+                .metrics(metrics)
+                .start();
+
+        TaskFuture<String> timeout = executor.submit(() -> {
+            sleep(5_000);
+            return "-TIMEOUT-";
+        }, 300L);
+        sleep(50);
+        TaskFuture<String> canceled = executor.submit(() -> "-CANCELED-");
+        TaskFuture<String> error = executor.submit(() -> {
+            throw new IllegalStateException("-FAILED-");
+        });
+        TaskFuture<String> rejected = executor.submit(() -> "-REJECTED-");
+        Assert.assertEquals(2, metrics.getQueueDepth());
+        Assert.assertEquals(1, metrics.getInFlightCount());
+        canceled.cancel(false);
+
+        timeout.waitFor();
+        error.waitFor();
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            taskFutures.add(executor.submit(() -> "-DONE-"));
+            taskFutures.get(i).waitFor();
+        }
+        // the outcome is recorded just after the task future is done
+        sleep(50);
+        logger.info(metrics.toString());
+
+        Assert.assertEquals(TaskStatus.REJECTED, rejected.getTaskStatus());
+        Assert.assertEquals(13, metrics.getSubmittedCount());
+        Assert.assertEquals(10, metrics.getCompletedCount());
+        Assert.assertEquals(1, metrics.getTimeoutCount());
+        Assert.assertEquals(1, metrics.getErrorCount());
+        Assert.assertEquals(1, metrics.getCanceledCount());
+        Assert.assertEquals(1, metrics.getRejectedCount());
+        Assert.assertEquals(0, metrics.getInFlightCount());
+        Assert.assertTrue(metrics.getExecutionTimeMax() >= 100_000L);
+        // the error task waits from 50ms after the timeout task until its timeout at 300ms
+        Assert.assertTrue(metrics.getQueueWaitMax() >= 100_000L);
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.github.johnsonmoon.queue:type=QueueTaskExecutor,name=\"metrics-test\"");
+        Assert.assertEquals(13L, mBeanServer.getAttribute(objectName, "SubmittedCount"));
+        metrics.unregisterMBean();
+        Assert.assertFalse(mBeanServer.isRegistered(objectName));
+
+        executor.stop();
+    }
+}
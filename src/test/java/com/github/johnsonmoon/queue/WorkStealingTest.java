@@ -0,0 +1,77 @@
+package com.github.johnsonmoon.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Create by johnsonmoon at 2026/10/18 15:48.
+ */
+public class WorkStealingTest {
+    private static Logger logger = LoggerFactory.getLogger(WorkStealingTest.class);
+
+    private static void sleep(long t) {
+        try {
+            Thread.sleep(t);
+        } catch (Exception e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void stealTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .workStealing(true)
+                .taskConcurrenceCount(4)
+                .taskMaxCount(100)
+                .start();
+
+        // all tasks pushed to one worker, the idle ones steal them
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<TaskFuture<String>> taskFutures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 40; i++) {
+            final int num = i;
+            taskFutures.add(executor.submitWithAffinity("same-key", () -> {
+                threads.add(Thread.currentThread().getName());
+                sleep(50);
+                return "-DONE-" + num;
+            }));
+        }
+        for (int i = 0; i < 40; i++) {
+            Assert.assertEquals("-DONE-" + i, taskFutures.get(i).waitFor());
+        }
+        logger.info(String.format("40 tasks executed in %s ms by %s", System.currentTimeMillis() - start, threads));
+        Assert.assertTrue(threads.size() > 1);
+        Assert.assertEquals(0, executor.getQueueDepth());
+
+        executor.stop();
+    }
+
+    @Test
+    public void timeoutAndCancelTest() {
+        QueueTaskExecutor<String> executor = new QueueTaskExecutor<String>()
+                .workStealing(true)
+                .taskConcurrenceCount(2)
+                .start();
+
+        TaskFuture<String> timeout = executor.submit(() -> {
+            sleep(5_000);
+            return "-DONE-";
+        }, 100L);
+        Assert.assertNull(timeout.waitFor());
+        Assert.assertEquals(TaskStatus.TIMEOUT, timeout.getTaskStatus());
+
+        TaskBatch<String> taskBatch = executor.submitAll(Arrays.asList(() -> "-A-", () -> "-B-"));
+        Assert.assertEquals("[-A-, -B-]", taskBatch.waitForAll().toString());
+
+        executor.stop();
+    }
+}